@@ -0,0 +1,84 @@
+package de.redsix.pdfcompare;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Decodes base64 encoded documents into a single buffer of the exact size, without copying the encoded text.
+ */
+final class Base64Input {
+
+    private Base64Input() {}
+
+    static byte[] decode(final CharSequence base64) throws IOException {
+        final byte[] decoded = new byte[decodedLength(base64)];
+        try (InputStream decoder = Base64.getDecoder().wrap(new CharSequenceInputStream(base64))) {
+            int offset = 0;
+            while (offset < decoded.length) {
+                final int read = decoder.read(decoded, offset, decoded.length - offset);
+                if (read < 0) {
+                    throw new IOException("Base64 input ended after " + offset + " of " + decoded.length + " bytes");
+                }
+                offset += read;
+            }
+            if (decoder.read() >= 0) {
+                throw new IOException("Base64 input is longer than expected");
+            }
+        }
+        return decoded;
+    }
+
+    static ByteBuffer decode(final ByteBuffer base64) {
+        return Base64.getDecoder().decode(base64.duplicate());
+    }
+
+    static int decodedLength(final CharSequence base64) {
+        int length = base64.length();
+        int padding = 0;
+        while (length > 0 && base64.charAt(length - 1) == '=' && padding < 2) {
+            length--;
+            padding++;
+        }
+        final int remainder = length % 4;
+        return length / 4 * 3 + (remainder == 0 ? 0 : remainder - 1);
+    }
+
+    private static class CharSequenceInputStream extends InputStream {
+
+        private final CharSequence chars;
+        private int position = 0;
+
+        private CharSequenceInputStream(final CharSequence chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int read() {
+            return position < chars.length() ? toAscii(chars.charAt(position++)) : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            final int count = Math.min(len, chars.length() - position);
+            if (count <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) toAscii(chars.charAt(position++));
+            }
+            return count;
+        }
+
+        /**
+         * Characters outside of ASCII are not valid in base64, so they are replaced by a character, the decoder rejects.
+         */
+        private static int toAscii(final char c) {
+            return c < 0x80 ? c : '?';
+        }
+    }
+}
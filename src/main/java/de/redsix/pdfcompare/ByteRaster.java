@@ -0,0 +1,119 @@
+package de.redsix.pdfcompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+
+/**
+ * Gives access to the lines of gray images with a byte per pixel and of binary images with a bit per pixel.
+ * Lines are compared on their bytes and only converted into RGB values, when they are diffed,
+ * so the images are never converted as a whole.
+ */
+final class ByteRaster {
+
+    private static final int WHITE = 0xFFFFFF;
+    private static final int[] GRAY_RGB = new int[256];
+
+    static {
+        for (int i = 0; i < GRAY_RGB.length; i++) {
+            GRAY_RGB[i] = i << 16 | i << 8 | i;
+        }
+    }
+
+    private final byte[] data;
+    private final int width;
+    private final int scanlineStride;
+    private final boolean binary;
+
+    private ByteRaster(final byte[] data, final int width, final int scanlineStride, final boolean binary) {
+        this.data = data;
+        this.width = width;
+        this.scanlineStride = scanlineStride;
+        this.binary = binary;
+    }
+
+    /**
+     * @return the raster of an image of TYPE_BYTE_GRAY or of a black and white image of TYPE_BYTE_BINARY
+     * or null, when the pixels of the image can not be accessed directly
+     */
+    static ByteRaster of(final BufferedImage image) {
+        final Raster raster = image.getRaster();
+        if (raster.getParent() != null || !(raster.getDataBuffer() instanceof DataBufferByte)) {
+            return null;
+        }
+        final DataBufferByte dataBuffer = (DataBufferByte) raster.getDataBuffer();
+        if (dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0) {
+            return null;
+        }
+        final SampleModel sampleModel = raster.getSampleModel();
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY && sampleModel instanceof ComponentSampleModel) {
+            final ComponentSampleModel componentSampleModel = (ComponentSampleModel) sampleModel;
+            if (componentSampleModel.getPixelStride() == 1 && componentSampleModel.getBandOffsets()[0] == 0) {
+                return new ByteRaster(dataBuffer.getData(), image.getWidth(), componentSampleModel.getScanlineStride(), false);
+            }
+        }
+        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY && sampleModel instanceof MultiPixelPackedSampleModel
+                && isBlackAndWhite(image.getColorModel())) {
+            final MultiPixelPackedSampleModel packedSampleModel = (MultiPixelPackedSampleModel) sampleModel;
+            if (packedSampleModel.getPixelBitStride() == 1 && packedSampleModel.getDataBitOffset() == 0) {
+                return new ByteRaster(dataBuffer.getData(), image.getWidth(), packedSampleModel.getScanlineStride(), true);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlackAndWhite(final ColorModel colorModel) {
+        if (!(colorModel instanceof IndexColorModel)) {
+            return false;
+        }
+        final IndexColorModel indexColorModel = (IndexColorModel) colorModel;
+        return indexColorModel.getMapSize() == 2 && (indexColorModel.getRGB(0) & WHITE) == 0 && (indexColorModel.getRGB(1) & WHITE) == WHITE;
+    }
+
+    /**
+     * @return true, when both rasters store their pixels the same way, so their bytes can be compared
+     */
+    boolean isComparableTo(final ByteRaster other) {
+        return binary == other.binary;
+    }
+
+    /**
+     * Compares the first pixels of a line of this raster and a line of another comparable raster.
+     */
+    boolean equalPixels(final int line, final ByteRaster other, final int otherLine, final int pixels) {
+        final int offset = line * scanlineStride;
+        final int otherOffset = otherLine * other.scanlineStride;
+        if (!binary) {
+            return PixelKernel.INSTANCE.mismatch(data, offset, other.data, otherOffset, pixels) == pixels;
+        }
+        final int fullBytes = pixels / 8;
+        if (PixelKernel.INSTANCE.mismatch(data, offset, other.data, otherOffset, fullBytes) != fullBytes) {
+            return false;
+        }
+        final int remainingBits = pixels % 8;
+        // the first pixel of a byte is its highest bit
+        final int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+        return remainingBits == 0 || ((data[offset + fullBytes] ^ other.data[otherOffset + fullBytes]) & mask) == 0;
+    }
+
+    /**
+     * Converts a line into RGB values, like they are stored in images of TYPE_INT_RGB.
+     */
+    void toRgb(final int line, final int[] rgb) {
+        final int offset = line * scanlineStride;
+        if (binary) {
+            for (int x = 0; x < width; x++) {
+                rgb[x] = (data[offset + (x >> 3)] & (0x80 >> (x & 7))) != 0 ? WHITE : 0;
+            }
+        } else {
+            for (int x = 0; x < width; x++) {
+                rgb[x] = GRAY_RGB[data[offset + x] & 0xFF];
+            }
+        }
+    }
+}
@@ -70,6 +70,17 @@ public interface CompareResult {
      */
     boolean hasOnlyOneDoc();
 
+    /**
+     * A comparison in fail-fast mode stops at the first difference, so not all pages are compared.
+     *
+     * By default, a result is always complete.
+     *
+     * @return false, when the comparison stopped before all pages were compared
+     */
+    default boolean isComplete() {
+        return true;
+    }
+
     /**
      * Gives that total number of pages in the result. This includes pages with differences.
      * When the setting addEqualPagesToResult is set to true, the pages without differences are also counted.
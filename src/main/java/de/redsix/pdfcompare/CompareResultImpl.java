@@ -16,6 +16,7 @@
 package de.redsix.pdfcompare;
 
 import de.redsix.pdfcompare.env.Environment;
+import de.redsix.pdfcompare.env.RenderImageType;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -25,10 +26,13 @@ import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -46,6 +50,10 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
     protected boolean hasDifferenceInExclusion = false;
     private boolean expectedOnly;
     private boolean actualOnly;
+    private volatile boolean incomplete;
+    private long documentLoadTimeInMillis;
+    private final AtomicInteger pagesResolvedCoarsely = new AtomicInteger();
+    private final AtomicInteger pagesResolvedAtFullResolution = new AtomicInteger();
     private final Collection<PageArea> diffAreas = new ArrayList<>();
     private final Map<Integer, Double> diffPercentages = new TreeMap<>();
     private int pages = 0;
@@ -64,7 +72,9 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
     }
 
     private boolean writeTo(ThrowingConsumer<PDDocument, IOException> saver) {
-        if (hasImages()) {
+        if (environment != null && environment.verdictOnly()) {
+            LOG.warn("No images are available to write, because the comparison was done in verdict-only mode");
+        } else if (hasImages()) {
             try (PDDocument document = new PDDocument()) {
                 addImagesToDocument(document);
                 saver.accept(document);
@@ -111,33 +121,91 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
     protected void addPageToDocument(final PDDocument document, final ImageWithDimension image) throws IOException {
         PDPage page = new PDPage(new PDRectangle(image.width, image.height));
         document.addPage(page);
-        final PDImageXObject imageXObject = LosslessFactory.createFromImage(document, image.bufferedImage);
+        final PDImageXObject imageXObject = LosslessFactory.createFromImage(document, imageForDocument(image.bufferedImage));
         try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
             contentStream.drawImage(imageXObject, 0, 0, image.width, image.height);
         }
     }
 
+    /**
+     * Pages rendered in gray or binary have a gray diff image, unless they have differences or exclusions.
+     * Those are written as gray images, which take a third of the space of RGB images in the document.
+     */
+    private BufferedImage imageForDocument(final BufferedImage image) {
+        if (environment == null || environment.getRenderImageType() == RenderImageType.RGB || !DiffImage.hasDirectPixels(image)) {
+            return image;
+        }
+        final int[] pixels = DiffImage.getPixels(image);
+        final BufferedImage grayImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        final byte[] grayPixels = ((DataBufferByte) grayImage.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            final int blue = pixels[i] & 0xFF;
+            if ((pixels[i] >> 16 & 0xFF) != blue || (pixels[i] >> 8 & 0xFF) != blue) {
+                return image;
+            }
+            grayPixels[i] = (byte) blue;
+        }
+        return grayImage;
+    }
+
     protected boolean keepImages() {
         return false;
     }
 
+    /**
+     * Tells, whether the expected and the actual image may be rendered into again, after they were passed to
+     * {@link #addPage(PageDiffCalculator, int, ImageWithDimension, ImageWithDimension, ImageWithDimension)}.
+     * By default, this is only done, when reusePageImages is enabled in the Environment.
+     * Subclasses, that keep those images, must return false.
+     *
+     * @return true, when the images of a page may be reused for later pages
+     */
+    protected boolean reusesPageImages() {
+        return environment != null && environment.reusePageImages();
+    }
+
+    /**
+     * Tells, whether the result holds the expected and the actual image of every page, so all pages have to be rendered
+     * completely at the configured DPI.
+     */
+    /*package*/ boolean needsImagesOfAllPages() {
+        return false;
+    }
+
     @Override
     public synchronized void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
             final ImageWithDimension expectedImage, final ImageWithDimension actualImage, final ImageWithDimension diffImage) {
         Objects.requireNonNull(expectedImage, "expectedImage is null");
         Objects.requireNonNull(actualImage, "actualImage is null");
         Objects.requireNonNull(diffImage, "diffImage is null");
+        if (addVerdict(diffCalculator, pageIndex)) {
+            diffImages.put(pageIndex, diffImage);
+        }
+    }
+
+    @Override
+    public synchronized void addPage(final PageDiffCalculator diffCalculator, final int pageIndex) {
+        addVerdict(diffCalculator, pageIndex);
+    }
+
+    /**
+     * Records the differences of a page.
+     *
+     * @return true, when the page is part of the result
+     */
+    private boolean addVerdict(final PageDiffCalculator diffCalculator, final int pageIndex) {
         this.hasDifferenceInExclusion |= diffCalculator.differencesFoundInExclusion();
         diffPercentages.put(pageIndex, diffCalculator.getDifferenceInPercent());
         if (diffCalculator.differencesFound()) {
             isEqual = false;
             diffAreas.add(diffCalculator.getDiffArea());
-            diffImages.put(pageIndex, diffImage);
             pages++;
+            return true;
         } else if (environment.addEqualPagesToResult()) {
-            diffImages.put(pageIndex, diffImage);
             pages++;
+            return true;
         }
+        return false;
     }
 
     @Override
@@ -175,6 +243,11 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
         return expectedOnly || actualOnly;
     }
 
+    @Override
+    public boolean isComplete() {
+        return !incomplete;
+    }
+
     @Override
     public int getNumberOfPages() {
         return pages;
@@ -208,6 +281,45 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
         this.actualOnly = true;
     }
 
+    public void incomplete() {
+        this.incomplete = true;
+    }
+
+    public void setDocumentLoadTime(final long documentLoadTimeInMillis) {
+        this.documentLoadTimeInMillis = documentLoadTimeInMillis;
+    }
+
+    /**
+     * @return the time it took to load and parse the expected and the actual document, which are loaded in parallel
+     */
+    public long getDocumentLoadTimeInMillis() {
+        return documentLoadTimeInMillis;
+    }
+
+    /*package*/ void resolvedCoarsely() {
+        pagesResolvedCoarsely.incrementAndGet();
+    }
+
+    /*package*/ void resolvedAtFullResolution() {
+        pagesResolvedAtFullResolution.incrementAndGet();
+    }
+
+    /**
+     * @return the number of pages, that were equal at the coarse DPI and were not compared at the configured DPI
+     * @see de.redsix.pdfcompare.env.Environment#getCoarseDPI()
+     */
+    public int getPagesResolvedCoarsely() {
+        return pagesResolvedCoarsely.get();
+    }
+
+    /**
+     * @return the number of pages, that were compared at the configured DPI after the comparison at the coarse DPI
+     * @see de.redsix.pdfcompare.env.Environment#getCoarseDPI()
+     */
+    public int getPagesResolvedAtFullResolution() {
+        return pagesResolvedAtFullResolution.get();
+    }
+
     public void setEnvironment(Environment environment) {
         this.environment = environment;
     }
@@ -25,6 +25,16 @@ public class CompareResultWithExpectedAndActual extends CompareResultImpl {
         return true;
     }
 
+    @Override
+    protected boolean reusesPageImages() {
+        return false;
+    }
+
+    @Override
+    /*package*/ boolean needsImagesOfAllPages() {
+        return true;
+    }
+
     public synchronized BufferedImage getDiffImage(final int page) {
         return getBufferedImageOrNull(diffImages.get(page));
     }
@@ -0,0 +1,79 @@
+package de.redsix.pdfcompare;
+
+import static de.redsix.pdfcompare.ImageTools.blue;
+import static de.redsix.pdfcompare.ImageTools.green;
+import static de.redsix.pdfcompare.ImageTools.red;
+import static de.redsix.pdfcompare.ImageTools.rgb;
+
+import de.redsix.pdfcompare.env.Environment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup tables for the colors of differing pixels, so that marking a difference needs no color objects
+ * and no calculations besides the intensity of the pixels.
+ * The tables are only computed once for every pair of expected and actual color.
+ */
+/*package*/ class DiffColors {
+
+    private static final Map<Long, DiffColors> CACHE = new ConcurrentHashMap<>();
+    /** The color for a pixel, that is in the actual image, indexed by the intensity of the expected pixel. */
+    private final int[] actualColors = new int[256];
+    /** The color for a pixel, that is missing in the actual image, indexed by the intensity of the actual pixel. */
+    private final int[] expectedColors = new int[256];
+
+    private DiffColors(final int expectedColor, final int actualColor) {
+        for (int intensity = 0; intensity < 256; intensity++) {
+            actualColors[intensity] = rgb(levelIntensity(intensity, red(actualColor)), green(actualColor), blue(actualColor));
+            expectedColors[intensity] = rgb(red(expectedColor), levelIntensity(intensity, green(expectedColor)), blue(expectedColor));
+        }
+    }
+
+    /*package*/ static DiffColors of(final Environment environment) {
+        final int expectedColor = environment.getExpectedColor().getRGB();
+        final int actualColor = environment.getActualColor().getRGB();
+        return CACHE.computeIfAbsent(((long) expectedColor << 32) | (actualColor & 0xFFFFFFFFL),
+                k -> new DiffColors(expectedColor, actualColor));
+    }
+
+    /**
+     * Gives the color of a pixel, that differs between the expected and the actual image.
+     * When the expected pixel is brighter, the pixel was added in the actual image and the actual color is used.
+     * Otherwise the expected color is used.
+     *
+     * @param expectedElement the pixel of the expected image
+     * @param actualElement   the pixel of the actual image
+     * @return the color to mark the difference with
+     */
+    /*package*/ int getElement(final int expectedElement, final int actualElement) {
+        final int expectedIntensity = calcCombinedIntensity(expectedElement);
+        final int actualIntensity = calcCombinedIntensity(actualElement);
+        if (expectedIntensity > actualIntensity) {
+            return actualColors[expectedIntensity];
+        } else {
+            return expectedColors[actualIntensity];
+        }
+    }
+
+    /**
+     * Levels the color intensity to at least 50 and at most maxIntensity.
+     *
+     * @param darkness     color component to level
+     * @param maxIntensity highest possible intensity cut off
+     * @return A value that is at least 50 and at most maxIntensity
+     */
+    private static int levelIntensity(final int darkness, final int maxIntensity) {
+        return Math.min(maxIntensity, Math.max(50, darkness));
+    }
+
+    /**
+     * Calculate the combined intensity of a pixel and normalize it to a value of at most 255.
+     *
+     * @param element a pixel encoded as an integer
+     * @return the intensity of all colors combined cut off at a maximum of 255
+     */
+    private static int calcCombinedIntensity(final int element) {
+        return (red(element) + green(element) + red(element)) / 3;
+    }
+}
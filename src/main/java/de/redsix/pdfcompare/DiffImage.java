@@ -8,38 +8,107 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class DiffImage {
 
     private static final Logger LOG = LoggerFactory.getLogger(DiffImage.class);
     /*package*/ static final int MARKER_RGB = color(230, 0, 230);
+    /**
+     * Pages are only split into strips, when every strip gets at least this many pixels to diff.
+     * Smaller strips are not worth the overhead of scheduling them.
+     */
+    /*package*/ static final int MIN_PIXELS_PER_STRIP = 512 * 1024;
+    /**
+     * Pages, that are diffed in bands, are rendered in bands of about this many pixels.
+     */
+    /*package*/ static final int PIXELS_PER_BAND = 8 * 1024 * 1024;
+    private static final int[] NO_PIXELS = {};
     private final ImageWithDimension expectedImage;
     private final ImageWithDimension actualImage;
+    private final float resultWidth;
+    private final float resultHeight;
     private final int page;
     private final Environment environment;
     private final Exclusions exclusions;
-    private DataBuffer expectedBuffer;
-    private DataBuffer actualBuffer;
+    private int[] expectedPixels;
+    private int[] actualPixels;
+    /** The pixels of gray or binary images, that are diffed without converting them as a whole. */
+    private ByteRaster expectedBytes;
+    private ByteRaster actualBytes;
+    private int[] resultPixels;
+    /** The row of the page, that is the first row of expectedPixels and actualPixels. */
+    private int firstRow;
     private int expectedImageWidth;
     private int expectedImageHeight;
     private int actualImageWidth;
     private int actualImageHeight;
+    private int resultImageWidth;
+    private int resultImageHeight;
+    private int overlapWidth;
+    private int overlapHeight;
     private BufferedImage resultImage;
-    private int diffAreaX1, diffAreaY1, diffAreaX2, diffAreaY2;
-    private final ResultCollector compareResult;
+    private ExclusionSpans exclusionSpans;
+    private DiffColors diffColors;
     private PageDiffCalculator diffCalculator;
+    private int diffAreaX1 = Integer.MAX_VALUE, diffAreaY1 = Integer.MAX_VALUE, diffAreaX2 = -1, diffAreaY2 = -1;
+    private final ResultCollector compareResult;
+    private ForkJoinPool stripPool;
 
     public DiffImage(final ImageWithDimension expectedImage, final ImageWithDimension actualImage, final int page,
             final Environment environment, final Exclusions exclusions, final ResultCollector compareResult) {
         this.expectedImage = expectedImage;
         this.actualImage = actualImage;
+        this.resultWidth = Math.max(expectedImage.width, actualImage.width);
+        this.resultHeight = Math.max(expectedImage.height, actualImage.height);
         this.page = page;
         this.environment = environment;
         this.exclusions = exclusions;
         this.compareResult = compareResult;
     }
 
+    /**
+     * Creates a DiffImage for pages, that are too large to be rendered at once. They are rendered and diffed band by band
+     * with {@link #diffBand(int, int, BufferedImage, BufferedImage)}, so only the bands and the result image are held in memory.
+     * As the expected and the actual image are never complete, the result image is also given to the ResultCollector
+     * in their place.
+     *
+     * @param expectedSize the size of the expected page in pixels
+     * @param actualSize   the size of the actual page in pixels
+     * @param resultWidth  the width of the larger page
+     * @param resultHeight the height of the larger page
+     */
+    /*package*/ DiffImage(final Dimension expectedSize, final Dimension actualSize, final float resultWidth, final float resultHeight,
+            final int page, final Environment environment, final Exclusions exclusions, final ResultCollector compareResult) {
+        this.expectedImage = null;
+        this.actualImage = null;
+        this.resultWidth = resultWidth;
+        this.resultHeight = resultHeight;
+        this.page = page;
+        this.environment = environment;
+        this.exclusions = exclusions;
+        this.compareResult = compareResult;
+        expectedImageWidth = expectedSize.width;
+        expectedImageHeight = expectedSize.height;
+        actualImageWidth = actualSize.width;
+        actualImageHeight = actualSize.height;
+    }
+
+    /**
+     * Large pages are split into strips, that are diffed in parallel in the given pool.
+     * Without a pool, every page is diffed as a single strip.
+     *
+     * @return this
+     */
+    /*package*/ DiffImage withStripPool(final ForkJoinPool stripPool) {
+        this.stripPool = stripPool;
+        return this;
+    }
+
     public BufferedImage getImage() {
         return resultImage;
     }
@@ -49,130 +118,484 @@ public class DiffImage {
     }
 
     public void diffImages() {
+        diffImages(0);
+    }
+
+    /**
+     * @param numberOfStrips the number of strips to split the page into or 0 to determine it from the page size
+     */
+    /*package for Testing*/ void diffImages(final int numberOfStrips) {
         BufferedImage expectBuffImage = this.expectedImage.bufferedImage;
         BufferedImage actualBuffImage = this.actualImage.bufferedImage;
-        expectedBuffer = expectBuffImage.getRaster().getDataBuffer();
-        actualBuffer = actualBuffImage.getRaster().getDataBuffer();
+        usePixels(expectBuffImage, actualBuffImage);
 
         expectedImageWidth = expectBuffImage.getWidth();
         expectedImageHeight = expectBuffImage.getHeight();
         actualImageWidth = actualBuffImage.getWidth();
         actualImageHeight = actualBuffImage.getHeight();
 
-        int resultImageWidth = Math.max(expectedImageWidth, actualImageWidth);
-        int resultImageHeight = Math.max(expectedImageHeight, actualImageHeight);
-        resultImage = new BufferedImage(resultImageWidth, resultImageHeight, actualBuffImage.getType());
-        DataBuffer resultBuffer = resultImage.getRaster().getDataBuffer();
+        prepare(getResultImageType(actualBuffImage));
+        diffRows(0, resultImageHeight, numberOfStrips);
+        finish();
+    }
 
-        diffCalculator = new PageDiffCalculator(resultImageWidth * resultImageHeight, environment.getAllowedDiffInPercent());
+    /**
+     * @return the number of rows of a band of pages of the given width
+     */
+    /*package*/ static int getBandHeight(final int width) {
+        return Math.max(1, PIXELS_PER_BAND / Math.max(1, width));
+    }
 
-        int expectedElement;
-        int actualElement;
-        final PageExclusions pageExclusions = exclusions.forPage(page + 1);
+    /**
+     * Diffs the rows from fromY (inclusive) to toY (exclusive) of pages, that are diffed band by band.
+     * The bands hold these rows of the pages, as far as the pages reach. A band is null, when the page ends before fromY.
+     * Bands must be diffed from top to bottom and the bands can be reused, when this method returns.
+     */
+    /*package*/ void diffBand(final int fromY, final int toY, final BufferedImage expectedBand, final BufferedImage actualBand) {
+        if (diffCalculator == null) {
+            prepare(BufferedImage.TYPE_INT_RGB);
+        }
+        usePixels(expectedBand, actualBand);
+        firstRow = fromY;
+        diffRows(fromY, toY, 0);
+    }
 
-        for (int y = 0; y < resultImageHeight; y++) {
-            final int expectedLineOffset = y * expectedImageWidth;
-            final int actualLineOffset = y * actualImageWidth;
-            final int resultLineOffset = y * resultImageWidth;
-            for (int x = 0; x < resultImageWidth; x++) {
-                expectedElement = getExpectedElement(x, y, expectedLineOffset);
-                actualElement = getActualElement(x, y, actualLineOffset);
-                int element = getElement(expectedElement, actualElement);
-                if (pageExclusions.contains(x, y)) {
-                    element = ImageTools.fadeExclusion(element);
-                    if (expectedElement != actualElement) {
-                        diffCalculator.diffFoundInExclusion();
-                    }
-                } else {
-                    if (expectedElement != actualElement) {
-                        extendDiffArea(x, y);
-                        diffCalculator.diffFound();
-                        LOG.trace("Difference found on page: {} at x: {}, y: {}", page + 1, x, y);
-                        mark(resultBuffer, x, y, resultImageWidth);
-                    }
-                }
-                resultBuffer.setElem(x + resultLineOffset, element);
+    /**
+     * Reports the result of a page, that was diffed band by band.
+     */
+    /*package*/ void finishBands() {
+        if (diffCalculator == null) {
+            prepare(BufferedImage.TYPE_INT_RGB);
+        }
+        finish();
+    }
+
+    /**
+     * Reads gray and binary images through their byte rasters. Images with direct int pixels of the same type are read directly,
+     * all others are converted to ARGB values. An image is null, when a page, that is diffed in bands, ended before the band.
+     */
+    private void usePixels(final BufferedImage expected, final BufferedImage actual) {
+        expectedBytes = expected != null ? ByteRaster.of(expected) : null;
+        actualBytes = actual != null ? ByteRaster.of(actual) : null;
+        if ((expected == null || expectedBytes != null) && (actual == null || actualBytes != null)
+                && (expectedBytes == null || actualBytes == null || expectedBytes.isComparableTo(actualBytes))) {
+            expectedPixels = null;
+            actualPixels = null;
+            return;
+        }
+        expectedBytes = null;
+        actualBytes = null;
+        final boolean direct = expected != null && actual != null && hasDirectPixels(expected) && hasDirectPixels(actual)
+                && expected.getType() == actual.getType();
+        expectedPixels = expected == null ? NO_PIXELS : direct ? getPixels(expected) : copyPixels(expected);
+        actualPixels = actual == null ? NO_PIXELS : direct ? getPixels(actual) : copyPixels(actual);
+    }
+
+    private void prepare(final int resultImageType) {
+        resultImageWidth = Math.max(expectedImageWidth, actualImageWidth);
+        resultImageHeight = Math.max(expectedImageHeight, actualImageHeight);
+        overlapWidth = Math.min(expectedImageWidth, actualImageWidth);
+        overlapHeight = Math.min(expectedImageHeight, actualImageHeight);
+
+        exclusionSpans = exclusions.spansForPage(page + 1, resultImageWidth, resultImageHeight);
+        diffColors = DiffColors.of(environment);
+        if (!environment.verdictOnly()) {
+            resultImage = new BufferedImage(resultImageWidth, resultImageHeight, resultImageType);
+            resultPixels = getPixels(resultImage);
+        }
+        diffCalculator = new PageDiffCalculator(resultImageWidth * resultImageHeight, environment.getAllowedDiffInPercent());
+    }
+
+    private void diffRows(final int fromY, final int toY, final int numberOfStrips) {
+        final Strip[] strips = createStrips(fromY, toY,
+                numberOfStrips > 0 ? Math.min(numberOfStrips, toY - fromY) : getNumberOfStrips(toY - fromY));
+        if (strips.length > 1 && stripPool != null) {
+            stripPool.invoke(new StripsAction(strips));
+        } else {
+            for (Strip strip : strips) {
+                strip.diff();
+            }
+        }
+        for (Strip strip : strips) {
+            diffCalculator.addDiffs(strip.diffsFound);
+            diffCalculator.addDiffsInExclusion(strip.diffsFoundInExclusion);
+            diffAreaX1 = Math.min(diffAreaX1, strip.diffAreaX1);
+            diffAreaY1 = Math.min(diffAreaY1, strip.diffAreaY1);
+            diffAreaX2 = Math.max(diffAreaX2, strip.diffAreaX2);
+            diffAreaY2 = Math.max(diffAreaY2, strip.diffAreaY2);
+            if (resultPixels != null) {
+                markColumns(strip.columnMarkerHeights);
             }
         }
+    }
+
+    private void finish() {
         if (diffCalculator.differencesFound()) {
             diffCalculator.addDiffArea(new PageArea(page + 1, diffAreaX1, diffAreaY1, diffAreaX2, diffAreaY2));
             LOG.info("Differences found at { page: {}, x1: {}, y1: {}, x2: {}, y2: {} }", page + 1, diffAreaX1, diffAreaY1, diffAreaX2,
                     diffAreaY2);
+        } else if (diffAreaX2 >= 0) {
+            LOG.trace("Differences found on page {} are within the allowed difference", page + 1);
+        }
+        if (resultImage == null) {
+            compareResult.addPage(diffCalculator, page);
+        } else {
+            final ImageWithDimension diffImage = new ImageWithDimension(resultImage, resultWidth, resultHeight);
+            compareResult.addPage(diffCalculator, page, expectedImage != null ? expectedImage : diffImage,
+                    actualImage != null ? actualImage : diffImage, diffImage);
+        }
+    }
+
+    /**
+     * Determines into how many horizontal strips the page is split for diffing, depending on the size of the
+     * page and the parallelism of the strip pool.
+     */
+    private int getNumberOfStrips(final int rows) {
+        if (stripPool == null) {
+            return 1;
         }
-        final float maxWidth = Math.max(expectedImage.width, actualImage.width);
-        final float maxHeight = Math.max(expectedImage.height, actualImage.height);
-        compareResult.addPage(diffCalculator, page, expectedImage, actualImage, new ImageWithDimension(resultImage, maxWidth, maxHeight));
+        return getNumberOfStrips(resultImageWidth, rows, stripPool.getParallelism());
+    }
+
+    /*package for Testing*/ static int getNumberOfStrips(final int width, final int height, final int parallelism) {
+        final long stripsBySize = (long) width * height / MIN_PIXELS_PER_STRIP;
+        return (int) Math.max(1, Math.min(Math.min(stripsBySize, parallelism), height));
     }
 
-    private void extendDiffArea(final int x, final int y) {
-        if (!diffCalculator.differencesFound()) {
-            diffAreaX1 = x;
-            diffAreaY1 = y;
+    private Strip[] createStrips(final int fromY, final int toY, final int numberOfStrips) {
+        final Strip[] strips = new Strip[numberOfStrips];
+        final int rows = toY - fromY;
+        for (int i = 0; i < numberOfStrips; i++) {
+            strips[i] = new Strip(fromY + (int) ((long) rows * i / numberOfStrips), fromY + (int) ((long) rows * (i + 1) / numberOfStrips));
+        }
+        return strips;
+    }
+
+    /**
+     * Draws the markers at the top of the image for every column with a difference.
+     * Marker pixels above a difference are never overwritten by later lines, so only those are drawn.
+     */
+    private void markColumns(final int[] columnMarkerHeights) {
+        for (int x = 0; x < resultImageWidth; x++) {
+            final int markerHeight = Math.min(columnMarkerHeights[x], MARKER_WIDTH);
+            for (int i = 0; i < markerHeight; i++) {
+                resultPixels[x + i * resultImageWidth] = MARKER_RGB;
+            }
         }
-        diffAreaX1 = Math.min(diffAreaX1, x);
-        diffAreaX2 = Math.max(diffAreaX2, x);
-        diffAreaY1 = Math.min(diffAreaY1, y);
-        diffAreaY2 = Math.max(diffAreaY2, y);
     }
 
-    private int getElement(final int expectedElement, final int actualElement) {
-        if (expectedElement != actualElement) {
-            int expectedIntensity = calcCombinedIntensity(expectedElement);
-            int actualIntensity = calcCombinedIntensity(actualElement);
-            if (expectedIntensity > actualIntensity) {
-                Color color = environment.getActualColor();
-                return color(levelIntensity(expectedIntensity, color.getRed()), color.getGreen(), color.getBlue());
+    /**
+     * Diffs all the lines from fromY (inclusive) to toY (exclusive) and collects the differences found there.
+     * Strips of the same page can be diffed concurrently, since each one only writes its own lines of the result image.
+     */
+    private class Strip {
+
+        private final int fromY;
+        private final int toY;
+        private int diffsFound;
+        private int diffsFoundInExclusion;
+        private int diffAreaX1 = Integer.MAX_VALUE, diffAreaY1 = Integer.MAX_VALUE, diffAreaX2 = -1, diffAreaY2 = -1;
+        /** For every column the lowest row, above which the column marker is drawn. */
+        private int[] columnMarkerHeights;
+        /** The rightmost difference in the current line, left of which the line marker is drawn. */
+        private int lineMarkerWidth;
+        /** The pixels of the current line start at these offsets. */
+        private int[] expectedRow;
+        private int[] actualRow;
+        private int expectedRowOffset;
+        private int actualRowOffset;
+        /** Lines of byte rasters are converted into these buffers. */
+        private int[] expectedLine;
+        private int[] actualLine;
+
+        private Strip(final int fromY, final int toY) {
+            this.fromY = fromY;
+            this.toY = toY;
+        }
+
+        private void diff() {
+            if (resultPixels == null) {
+                for (int y = fromY; y < toY; y++) {
+                    countLine(y, y < overlapHeight ? overlapWidth : 0);
+                }
             } else {
-                Color color = environment.getExpectedColor();
-                return color(color.getRed(), levelIntensity(actualIntensity, color.getGreen()), color.getBlue());
+                columnMarkerHeights = new int[resultImageWidth];
+                for (int y = fromY; y < toY; y++) {
+                    diffLine(y, y < overlapHeight ? overlapWidth : 0);
+                }
             }
-        } else {
-            return ImageTools.fadeElement(expectedElement);
+        }
+
+        /**
+         * Counts the differences in one line without writing a result image.
+         */
+        private void countLine(final int y, final int overlapWidth) {
+            final int equalWidth = overlapEquals(y, overlapWidth) ? overlapWidth : 0;
+            if (equalWidth == resultImageWidth) {
+                return;
+            }
+            selectLine(y);
+            final int[] spans = exclusionSpans.forLine(y);
+            int x = 0;
+            for (int i = 0; i < spans.length; i += 2) {
+                countSpan(y, x, spans[i], overlapWidth, equalWidth, false);
+                countSpan(y, spans[i], spans[i + 1], overlapWidth, equalWidth, true);
+                x = spans[i + 1];
+            }
+            countSpan(y, x, resultImageWidth, overlapWidth, equalWidth, false);
+        }
+
+        private void countSpan(final int y, final int fromX, final int toX, final int overlapWidth, final int equalWidth,
+                final boolean excluded) {
+            final int expectedLineOffset = expectedRowOffset;
+            final int actualLineOffset = actualRowOffset;
+            final int overlapEnd = Math.min(toX, overlapWidth);
+            for (int x = Math.max(fromX, equalWidth); x < overlapEnd; x++) {
+                x += PixelKernel.INSTANCE.mismatch(expectedRow, x + expectedLineOffset, actualRow, x + actualLineOffset, overlapEnd - x);
+                if (x < overlapEnd) {
+                    countDifference(x, y, excluded);
+                }
+            }
+            for (int x = Math.max(fromX, overlapWidth); x < toX; x++) {
+                final int expectedElement = x < expectedImageWidth && y < expectedImageHeight ? expectedRow[x + expectedLineOffset] : 0;
+                final int actualElement = x < actualImageWidth && y < actualImageHeight ? actualRow[x + actualLineOffset] : 0;
+                if (expectedElement != actualElement) {
+                    countDifference(x, y, excluded);
+                }
+            }
+        }
+
+        /**
+         * Diffs one line of the result image span by span, so that the exclusions are only looked up once per line.
+         */
+        private void diffLine(final int y, final int overlapWidth) {
+            lineMarkerWidth = 0;
+            final int equalWidth = overlapEquals(y, overlapWidth) ? overlapWidth : 0;
+            selectLine(y);
+            final int[] spans = exclusionSpans.forLine(y);
+            int x = 0;
+            for (int i = 0; i < spans.length; i += 2) {
+                diffSpan(y, x, spans[i], overlapWidth, equalWidth, false);
+                diffSpan(y, spans[i], spans[i + 1], overlapWidth, equalWidth, true);
+                x = spans[i + 1];
+            }
+            diffSpan(y, x, resultImageWidth, overlapWidth, equalWidth, false);
+            // A marker pixel left of a difference is never overwritten by the line itself.
+            final int resultLineOffset = y * resultImageWidth;
+            final int markerEnd = Math.min(lineMarkerWidth, MARKER_WIDTH);
+            for (int i = 0; i < markerEnd; i++) {
+                resultPixels[i + resultLineOffset] = MARKER_RGB;
+            }
+        }
+
+        /**
+         * Diffs the pixels from fromX (inclusive) to toX (exclusive) of a line. The pixels left of overlapWidth are present
+         * in both images and are read without any bounds checks. The remaining pixels are only present in one of the images or in none.
+         * The pixels left of equalWidth are known to be equal and are only faded.
+         */
+        private void diffSpan(final int y, final int fromX, final int toX, final int overlapWidth, final int equalWidth,
+                final boolean excluded) {
+            final int expectedLineOffset = expectedRowOffset;
+            final int actualLineOffset = actualRowOffset;
+            final int resultLineOffset = y * resultImageWidth;
+            final int overlapEnd = Math.min(toX, overlapWidth);
+            fadeSpan(expectedLineOffset, resultLineOffset, fromX, Math.min(overlapEnd, equalWidth), excluded);
+            // runs of equal pixels between the differences are faded at once
+            for (int x = Math.max(fromX, equalWidth); x < overlapEnd; x++) {
+                final int equalPixels = PixelKernel.INSTANCE.mismatch(expectedRow, x + expectedLineOffset, actualRow,
+                        x + actualLineOffset, overlapEnd - x);
+                fadeSpan(expectedLineOffset, resultLineOffset, x, x + equalPixels, excluded);
+                x += equalPixels;
+                if (x < overlapEnd) {
+                    resultPixels[x + resultLineOffset] = markDifference(x, y, expectedRow[x + expectedLineOffset],
+                            actualRow[x + actualLineOffset], excluded);
+                }
+            }
+            for (int x = Math.max(fromX, overlapWidth); x < toX; x++) {
+                final int expectedElement = x < expectedImageWidth && y < expectedImageHeight ? expectedRow[x + expectedLineOffset] : 0;
+                final int actualElement = x < actualImageWidth && y < actualImageHeight ? actualRow[x + actualLineOffset] : 0;
+                if (expectedElement == actualElement) {
+                    resultPixels[x + resultLineOffset] = fadeEqual(expectedElement, excluded);
+                } else {
+                    resultPixels[x + resultLineOffset] = markDifference(x, y, expectedElement, actualElement, excluded);
+                }
+            }
+        }
+
+        /**
+         * Compares the overlapping pixels of a line, before the line is diffed. Most lines of a page are equal in both images,
+         * so they are compared in a tight loop, that stops at the first difference, instead of pixel by pixel with exclusions.
+         */
+        private boolean overlapEquals(final int y, final int overlapWidth) {
+            if (overlapWidth == 0) {
+                return false;
+            }
+            if (expectedBytes != null) {
+                return expectedBytes.equalPixels(y - firstRow, actualBytes, y - firstRow, overlapWidth);
+            }
+            final int expectedLineOffset = (y - firstRow) * expectedImageWidth;
+            final int actualLineOffset = (y - firstRow) * actualImageWidth;
+            return PixelKernel.INSTANCE.mismatch(expectedPixels, expectedLineOffset, actualPixels, actualLineOffset, overlapWidth)
+                    == overlapWidth;
+        }
+
+        /**
+         * Selects the pixels of line y. Lines of byte rasters are converted into the line buffers of the strip.
+         */
+        private void selectLine(final int y) {
+            if (expectedPixels != null) {
+                expectedRow = expectedPixels;
+                actualRow = actualPixels;
+                expectedRowOffset = (y - firstRow) * expectedImageWidth;
+                actualRowOffset = (y - firstRow) * actualImageWidth;
+                return;
+            }
+            expectedRowOffset = 0;
+            actualRowOffset = 0;
+            if (y < expectedImageHeight) {
+                if (expectedLine == null) {
+                    expectedLine = new int[expectedImageWidth];
+                }
+                expectedBytes.toRgb(y - firstRow, expectedLine);
+            }
+            if (y < actualImageHeight) {
+                if (actualLine == null) {
+                    actualLine = new int[actualImageWidth];
+                }
+                actualBytes.toRgb(y - firstRow, actualLine);
+            }
+            expectedRow = expectedLine;
+            actualRow = actualLine;
+        }
+
+        /**
+         * Fades equal pixels from fromX (inclusive) to toX (exclusive) of a line. Pixels outside of exclusions are faded by the
+         * {@link PixelKernel}. In exclusions, the faded color is only calculated again, when the color changes, like the kernel does.
+         */
+        private void fadeSpan(final int expectedLineOffset, final int resultLineOffset, final int fromX, final int toX,
+                final boolean excluded) {
+            if (fromX >= toX) {
+                return;
+            }
+            if (!excluded) {
+                PixelKernel.INSTANCE.fade(expectedRow, fromX + expectedLineOffset, resultPixels, fromX + resultLineOffset, toX - fromX);
+                return;
+            }
+            int element = expectedRow[fromX + expectedLineOffset];
+            int faded = fadeEqual(element, excluded);
+            for (int x = fromX; x < toX; x++) {
+                final int next = expectedRow[x + expectedLineOffset];
+                if (next != element) {
+                    element = next;
+                    faded = fadeEqual(element, excluded);
+                }
+                resultPixels[x + resultLineOffset] = faded;
+            }
+        }
+
+        private int fadeEqual(final int element, final boolean excluded) {
+            final int faded = ImageTools.fadeElement(element);
+            if (excluded) {
+                return ImageTools.fadeExclusion(faded);
+            }
+            return faded;
+        }
+
+        private int markDifference(final int x, final int y, final int expectedElement, final int actualElement, final boolean excluded) {
+            final int element = diffColors.getElement(expectedElement, actualElement);
+            if (countDifference(x, y, excluded)) {
+                lineMarkerWidth = x;
+                columnMarkerHeights[x] = y;
+                return element;
+            }
+            return ImageTools.fadeExclusion(element);
+        }
+
+        /**
+         * Counts a difference and extends the diff area.
+         *
+         * @return false, when the difference is in an excluded area
+         */
+        private boolean countDifference(final int x, final int y, final boolean excluded) {
+            if (excluded) {
+                ++diffsFoundInExclusion;
+                return false;
+            }
+            ++diffsFound;
+            if (x < diffAreaX1) {
+                diffAreaX1 = x;
+            }
+            if (x > diffAreaX2) {
+                diffAreaX2 = x;
+            }
+            if (y < diffAreaY1) {
+                diffAreaY1 = y;
+            }
+            diffAreaY2 = y;
+            return true;
         }
     }
 
-    private int getExpectedElement(final int x, final int y, final int expectedLineOffset) {
-        if (x < expectedImageWidth && y < expectedImageHeight) {
-            return expectedBuffer.getElem(x + expectedLineOffset);
+    private static class StripsAction extends RecursiveAction {
+
+        private final Strip[] strips;
+
+        private StripsAction(final Strip[] strips) {
+            this.strips = strips;
+        }
+
+        @Override
+        protected void compute() {
+            final RecursiveAction[] actions = new RecursiveAction[strips.length];
+            for (int i = 0; i < strips.length; i++) {
+                final Strip strip = strips[i];
+                actions[i] = new RecursiveAction() {
+
+                    @Override
+                    protected void compute() {
+                        strip.diff();
+                    }
+                };
+            }
+            invokeAll(actions);
         }
-        return 0;
     }
 
-    private int getActualElement(final int x, final int y, final int actualLineOffset) {
-        if (x < actualImageWidth && y < actualImageHeight) {
-            return actualBuffer.getElem(x + actualLineOffset);
+    /**
+     * Checks, whether the pixels of an image are stored in a single int array with one pixel per element
+     * and without any padding, so that they can be accessed directly.
+     */
+    /*package*/ static boolean hasDirectPixels(final BufferedImage image) {
+        final Raster raster = image.getRaster();
+        if (raster.getDataBuffer() instanceof DataBufferInt && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && raster.getParent() == null) {
+            final DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            final SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            return dataBuffer.getNumBanks() == 1 && dataBuffer.getOffset() == 0 && sampleModel.getScanlineStride() == image.getWidth();
         }
-        return 0;
+        return false;
     }
 
     /**
-     * Levels the color intensity to at least 50 and at most maxIntensity.
-     *
-     * @param darkness     color component to level
-     * @param maxIntensity highest possible intensity cut off
-     * @return A value that is at least 50 and at most maxIntensity
+     * Gives direct access to the backing array of an image. Only valid when {@link #hasDirectPixels(BufferedImage)} is true.
      */
-    private static int levelIntensity(final int darkness, final int maxIntensity) {
-        return Math.min(maxIntensity, Math.max(50, darkness));
+    /*package*/ static int[] getPixels(final BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
     }
 
     /**
-     * Calculate the combined intensity of a pixel and normalize it to a value of at most 255.
-     *
-     * @param element a pixel encoded as an integer
-     * @return the intensity of all colors combined cut off at a maximum of 255
+     * Converts the pixels of an image of any type into a newly allocated array of ARGB values.
      */
-    private static int calcCombinedIntensity(final int element) {
-        final Color color = new Color(element);
-        return Math.min(255, (color.getRed() + color.getGreen() + color.getRed()) / 3);
+    /*package*/ static int[] copyPixels(final BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
     }
 
-    private static void mark(final DataBuffer image, final int x, final int y, final int imageWidth) {
-        final int yOffset = y * imageWidth;
-        for (int i = 0; i < MARKER_WIDTH; i++) {
-            image.setElem(x + i * imageWidth, MARKER_RGB);
-            image.setElem(i + yOffset, MARKER_RGB);
+    private static int getResultImageType(final BufferedImage image) {
+        final int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_BGR) {
+            return type;
         }
+        return BufferedImage.TYPE_INT_RGB;
     }
 
     public static int color(final int r, final int g, final int b) {
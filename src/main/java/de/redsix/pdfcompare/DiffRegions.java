@@ -0,0 +1,99 @@
+package de.redsix.pdfcompare;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the regions of a page, that differ at the coarse DPI, so only those regions need to be rendered at the configured DPI.
+ * The coarse images are split into tiles and every tile with a difference becomes a region. Neighbouring tiles are merged,
+ * so the page is rendered only a few times. The regions are enlarged by a coarse pixel and some pixels of the configured DPI,
+ * so that differences, that are blurred into the neighbouring coarse pixels, are still inside a region.
+ */
+final class DiffRegions {
+
+    /*package*/ static final int TILE_SIZE = 16;
+    /*package*/ static final int MAX_REGIONS = 16;
+    private static final int MARGIN = 2;
+
+    private DiffRegions() {}
+
+    /**
+     * @param scale  the configured DPI divided by the coarse DPI
+     * @param width  the width of the page at the configured DPI
+     * @param height the height of the page at the configured DPI
+     * @return the differing regions at the configured DPI, an empty list, when the coarse images are equal,
+     * or null, when rendering the regions would not be cheaper than rendering the whole page
+     */
+    static List<Rectangle> find(final int[] expectedPixels, final int[] actualPixels, final int coarseWidth, final int coarseHeight,
+            final double scale, final int width, final int height) {
+        final int tilesX = (coarseWidth + TILE_SIZE - 1) / TILE_SIZE;
+        final int tilesY = (coarseHeight + TILE_SIZE - 1) / TILE_SIZE;
+        final List<Rectangle> tileRegions = new ArrayList<>();
+        Rectangle[] previousRow = new Rectangle[tilesX];
+        for (int tileY = 0; tileY < tilesY; tileY++) {
+            final Rectangle[] currentRow = new Rectangle[tilesX];
+            int runStart = -1;
+            for (int tileX = 0; tileX <= tilesX; tileX++) {
+                final boolean differs = tileX < tilesX
+                        && tileDiffers(expectedPixels, actualPixels, coarseWidth, coarseHeight, tileX, tileY);
+                if (differs && runStart < 0) {
+                    runStart = tileX;
+                } else if (!differs && runStart >= 0) {
+                    // a run of differing tiles is merged with the run of the previous row, when it spans the same tiles
+                    final Rectangle above = previousRow[runStart];
+                    final Rectangle run;
+                    if (above != null && above.x == runStart && above.width == tileX - runStart) {
+                        above.height++;
+                        run = above;
+                    } else {
+                        run = new Rectangle(runStart, tileY, tileX - runStart, 1);
+                        tileRegions.add(run);
+                        if (tileRegions.size() > MAX_REGIONS) {
+                            return null;
+                        }
+                    }
+                    currentRow[runStart] = run;
+                    runStart = -1;
+                }
+            }
+            previousRow = currentRow;
+        }
+        if (tileRegions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<Rectangle> regions = new ArrayList<>(tileRegions.size());
+        long area = 0;
+        for (Rectangle tiles : tileRegions) {
+            final Rectangle region = toPixels(tiles, scale, width, height);
+            area += (long) region.width * region.height;
+            regions.add(region);
+        }
+        return area * 2 > (long) width * height ? null : regions;
+    }
+
+    private static boolean tileDiffers(final int[] expectedPixels, final int[] actualPixels, final int coarseWidth, final int coarseHeight,
+            final int tileX, final int tileY) {
+        final int fromX = tileX * TILE_SIZE;
+        final int toX = Math.min(fromX + TILE_SIZE, coarseWidth);
+        final int toY = Math.min((tileY + 1) * TILE_SIZE, coarseHeight);
+        for (int y = tileY * TILE_SIZE; y < toY; y++) {
+            final int lineOffset = y * coarseWidth;
+            for (int x = fromX; x < toX; x++) {
+                if (expectedPixels[x + lineOffset] != actualPixels[x + lineOffset]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Rectangle toPixels(final Rectangle tiles, final double scale, final int width, final int height) {
+        final int x1 = Math.max(0, (int) Math.floor((tiles.x * TILE_SIZE - 1) * scale) - MARGIN);
+        final int y1 = Math.max(0, (int) Math.floor((tiles.y * TILE_SIZE - 1) * scale) - MARGIN);
+        final int x2 = Math.min(width, (int) Math.ceil(((tiles.x + tiles.width) * TILE_SIZE + 1) * scale) + MARGIN);
+        final int y2 = Math.min(height, (int) Math.ceil(((tiles.y + tiles.height) * TILE_SIZE + 1) * scale) + MARGIN);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+}
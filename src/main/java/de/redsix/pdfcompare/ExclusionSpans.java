@@ -0,0 +1,104 @@
+package de.redsix.pdfcompare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A precompiled form of the exclusions of one page with a fixed size.
+ * For every line of the page the excluded pixels are stored as sorted and non overlapping spans,
+ * so checking a pixel or a line does not depend on the number of exclusions anymore.
+ * Lines with the same exclusions share the same spans.
+ */
+public class ExclusionSpans {
+
+    private static final int[] NO_SPANS = new int[0];
+    private final int width;
+    private final int height;
+    /** For every line pairs of the first excluded x-coordinate and the first x-coordinate after the exclusion. */
+    private final int[][] spansPerLine;
+
+    /*package*/ ExclusionSpans(final Collection<PageArea> exclusions, final int width, final int height) {
+        this.width = width;
+        this.height = height;
+        this.spansPerLine = new int[height][];
+        if (exclusions.stream().anyMatch(e -> !e.hasCoordinates())) {
+            Arrays.fill(spansPerLine, width > 0 ? new int[] {0, width} : NO_SPANS);
+            return;
+        }
+        final TreeSet<Integer> bandStarts = new TreeSet<>();
+        bandStarts.add(0);
+        for (PageArea exclusion : exclusions) {
+            if (exclusion.getY1() < height && exclusion.getX1() < width) {
+                bandStarts.add(exclusion.getY1());
+                bandStarts.add(Math.min(exclusion.getY2() + 1, height));
+            }
+        }
+        bandStarts.add(height);
+        Integer bandStart = bandStarts.first();
+        for (Integer bandEnd = bandStarts.higher(bandStart); bandEnd != null; bandStart = bandEnd, bandEnd = bandStarts.higher(bandEnd)) {
+            Arrays.fill(spansPerLine, bandStart, bandEnd, spansForLine(exclusions, bandStart));
+        }
+    }
+
+    private int[] spansForLine(final Collection<PageArea> exclusions, final int y) {
+        final List<int[]> spans = new ArrayList<>();
+        for (PageArea exclusion : exclusions) {
+            if (exclusion.getY1() <= y && y <= exclusion.getY2() && exclusion.getX1() < width) {
+                spans.add(new int[] {exclusion.getX1(), Math.min(exclusion.getX2() + 1, width)});
+            }
+        }
+        if (spans.isEmpty()) {
+            return NO_SPANS;
+        }
+        spans.sort((a, b) -> Integer.compare(a[0], b[0]));
+        final int[] merged = new int[spans.size() * 2];
+        int length = 0;
+        for (int[] span : spans) {
+            if (length > 0 && span[0] <= merged[length - 1]) {
+                merged[length - 1] = Math.max(merged[length - 1], span[1]);
+            } else {
+                merged[length++] = span[0];
+                merged[length++] = span[1];
+            }
+        }
+        return Arrays.copyOf(merged, length);
+    }
+
+    /**
+     * Gives the excluded spans of a line as pairs of the first excluded x-coordinate and the first x-coordinate
+     * after the exclusion. The spans are sorted and do not overlap. The returned array must not be modified.
+     *
+     * @param y the line
+     * @return the excluded spans of the line
+     */
+    public int[] forLine(final int y) {
+        return y < height ? spansPerLine[y] : NO_SPANS;
+    }
+
+    public boolean contains(final int x, final int y) {
+        if (x >= width) {
+            return false;
+        }
+        final int[] spans = forLine(y);
+        for (int i = 0; i < spans.length; i += 2) {
+            if (x < spans[i]) {
+                return false;
+            }
+            if (x < spans[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -8,10 +8,12 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -55,6 +57,7 @@ public class Exclusions {
     private static final ConfigParseOptions configParseOptions = ConfigParseOptions.defaults().setSyntax(ConfigSyntax.CONF).setAllowMissing(true);
     private final Map<Integer, PageExclusions> exclusionsPerPage = new HashMap<>();
     private final PageExclusions exclusionsForAllPages = new PageExclusions();
+    private final Map<List<Integer>, ExclusionSpans> spansCache = new ConcurrentHashMap<>();
 
     public Exclusions(Environment environment) {
         this.environment = environment;
@@ -66,6 +69,7 @@ public class Exclusions {
 
     public Exclusions add(final PageArea exclusion) {
         Objects.requireNonNull(exclusion);
+        spansCache.clear();
         if (exclusion.hasPage()) {
             exclusionsPerPage.computeIfAbsent(exclusion.page, k -> new PageExclusions(exclusionsForAllPages)).add(exclusion);
         } else {
@@ -76,6 +80,7 @@ public class Exclusions {
 
     public Exclusions remove(final PageArea exclusion) {
         Objects.requireNonNull(exclusion);
+        spansCache.clear();
         if (exclusion.hasPage()) {
             exclusionsPerPage.computeIfAbsent(exclusion.page, k -> new PageExclusions(exclusionsForAllPages)).remove(exclusion);
         } else {
@@ -88,6 +93,21 @@ public class Exclusions {
         return exclusionsPerPage.getOrDefault(page, exclusionsForAllPages);
     }
 
+    /**
+     * Gives the exclusions of a page compiled into spans per line for a page of the given size.
+     * The spans are only compiled once and shared by all pages with the same exclusions and size.
+     *
+     * @param page   the page number starting with 1
+     * @param width  the width of the page in pixels
+     * @param height the height of the page in pixels
+     * @return the compiled exclusions of the page
+     */
+    public ExclusionSpans spansForPage(final int page, final int width, final int height) {
+        final int key = exclusionsPerPage.containsKey(page) ? page : -1;
+        return spansCache.computeIfAbsent(Arrays.asList(key, width, height),
+                k -> new ExclusionSpans(forPage(page).getAllExclusions(), width, height));
+    }
+
     public void readExclusions(final String filename) {
         Objects.requireNonNull(filename, "filename must not be null");
         readExclusions(new File(filename));
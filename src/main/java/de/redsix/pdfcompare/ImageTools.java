@@ -6,6 +6,14 @@ import java.awt.image.BufferedImage;
 public class ImageTools {
 
     public static final int EXCLUDED_BACKGROUND_RGB = new Color(255, 255, 100).getRGB();
+    private static final int OPAQUE = 0xFF000000;
+    private static final int[] FADE = new int[256];
+
+    static {
+        for (int i = 0; i < FADE.length; i++) {
+            FADE[i] = fade(i);
+        }
+    }
 
     public static BufferedImage blankImage(final BufferedImage image) {
         Graphics2D graphics = image.createGraphics();
@@ -15,13 +23,11 @@ public class ImageTools {
     }
 
     public static int fadeElement(final int i) {
-        final Color color = new Color(i);
-        return new Color(fade(color.getRed()), fade(color.getGreen()), fade(color.getBlue())).getRGB();
+        return OPAQUE | FADE[(i >> 16) & 0xFF] << 16 | FADE[(i >> 8) & 0xFF] << 8 | FADE[i & 0xFF];
     }
 
     public static int fadeExclusion(final int i) {
-        final Color color = new Color(i);
-        if (color.getRed() > 245 && color.getGreen() > 245 && color.getBlue() > 245) {
+        if (red(i) > 245 && green(i) > 245 && blue(i) > 245) {
             return EXCLUDED_BACKGROUND_RGB;
         }
         return fadeElement(i);
@@ -31,6 +37,26 @@ public class ImageTools {
         return i + ((255 - i) * 3 / 5);
     }
 
+    /*package*/ static int red(final int rgb) {
+        return (rgb >> 16) & 0xFF;
+    }
+
+    /*package*/ static int green(final int rgb) {
+        return (rgb >> 8) & 0xFF;
+    }
+
+    /*package*/ static int blue(final int rgb) {
+        return rgb & 0xFF;
+    }
+
+    /**
+     * Combines the color components into an opaque RGB value, like {@link Color#getRGB()} does.
+     * Components have to be in the range 0 to 255.
+     */
+    /*package*/ static int rgb(final int r, final int g, final int b) {
+        return OPAQUE | r << 16 | g << 8 | b;
+    }
+
     public static BufferedImage deepCopy(BufferedImage image) {
         return new BufferedImage(image.getColorModel(), image.copyData(null), image.getColorModel().isAlphaPremultiplied(), null);
     }
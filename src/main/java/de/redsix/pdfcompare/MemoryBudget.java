@@ -0,0 +1,153 @@
+package de.redsix.pdfcompare;
+
+import de.redsix.pdfcompare.env.RenderImageType;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits the memory used by the images of pages, that are rendered and diffed at the same time.
+ * A page is only admitted, when the estimated size of its images fits into the budget.
+ * A single page is always admitted, even when it is larger than the whole budget, so that large pages can still be compared.
+ * <p>
+ * Idle images kept for reuse are charged to the budget as well. They are only kept, while they fit into the budget,
+ * and are reclaimed, when a page would otherwise have to wait for memory.
+ */
+class MemoryBudget {
+
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final long WAIT_SLICE_MILLIS = 100;
+    private final long budget;
+    private long used = 0;
+    private long idle = 0;
+    private Runnable idleReclaimer;
+
+    MemoryBudget(final long budgetInBytes) {
+        this.budget = budgetInBytes;
+    }
+
+    /**
+     * Sets what frees the idle memory, when a page does not fit into the budget. It releases the idle memory with {@link #releaseIdle(long)}.
+     */
+    synchronized void setIdleReclaimer(final Runnable idleReclaimer) {
+        this.idleReclaimer = idleReclaimer;
+    }
+
+    /**
+     * Blocks until the given number of bytes fits into the budget.
+     */
+    void acquire(final long bytes) throws InterruptedException {
+        acquire(bytes, Long.MAX_VALUE, () -> false);
+    }
+
+    /**
+     * Blocks until the given number of bytes fits into the budget, the timeout elapses or the waiting is stopped.
+     * Whether it is stopped, is checked, when {@link #wakeUp()} is called, and at least every {@link #WAIT_SLICE_MILLIS}.
+     *
+     * @return true, when the bytes were acquired, false, when the waiting was stopped or timed out
+     */
+    synchronized boolean acquire(final long bytes, final long timeoutInNanos, final BooleanSupplier stopped) throws InterruptedException {
+        final long start = System.nanoTime();
+        while (used > 0 && used + bytes > budget) {
+            if (stopped.getAsBoolean()) {
+                return false;
+            }
+            final long idleBefore = idle;
+            if (idle > 0 && idleReclaimer != null) {
+                idleReclaimer.run();
+            }
+            if (idle == idleBefore) {
+                final long remaining = timeoutInNanos - (System.nanoTime() - start);
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(WAIT_SLICE_MILLIS)));
+            }
+        }
+        used += bytes;
+        return true;
+    }
+
+    /**
+     * Wakes up all threads, that wait for memory, so they check, whether they are stopped.
+     */
+    synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    synchronized void release(final long bytes) {
+        used -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Charges the memory of an idle image to the budget, when it fits.
+     *
+     * @return true, when the image may be kept
+     */
+    synchronized boolean acquireIdle(final long bytes) {
+        if (used + bytes > budget) {
+            return false;
+        }
+        used += bytes;
+        idle += bytes;
+        return true;
+    }
+
+    synchronized void releaseIdle(final long bytes) {
+        idle -= bytes;
+        release(bytes);
+    }
+
+    synchronized long getUsed() {
+        return used;
+    }
+
+    synchronized long getIdle() {
+        return idle;
+    }
+
+    /**
+     * Estimates the memory needed to compare a page from the size of the pages, without rendering them.
+     * The expected and the actual page are rendered into a raster of the given type each and, unless no diff image is created,
+     * the diff image is an int raster of the size of the larger one.
+     */
+    static long estimatePage(final PDPage expectedPage, final PDPage actualPage, final int dpi, final RenderImageType imageType,
+            final boolean withDiffImage) {
+        final long expectedPixels = estimatePixels(expectedPage, dpi);
+        final long actualPixels = estimatePixels(actualPage, dpi);
+        return estimateRaster(expectedPixels, imageType) + estimateRaster(actualPixels, imageType)
+                + (withDiffImage ? Math.max(expectedPixels, actualPixels) * BYTES_PER_PIXEL : 0);
+    }
+
+    /**
+     * Estimates the memory needed to compare a page, that is rendered and diffed in bands.
+     * Only a band of the expected and of the actual page is held and, unless no diff image is created, the complete diff image.
+     */
+    static long estimateBandedPage(final PDPage expectedPage, final PDPage actualPage, final int dpi, final RenderImageType imageType,
+            final boolean withDiffImage) {
+        final long bandBytes = 2 * estimateRaster(DiffImage.PIXELS_PER_BAND, imageType);
+        return bandBytes + (withDiffImage ? Math.max(estimateImage(expectedPage, dpi), estimateImage(actualPage, dpi)) : 0);
+    }
+
+    /**
+     * Estimates the size of an int raster of the page.
+     */
+    static long estimateImage(final PDPage page, final int dpi) {
+        return estimatePixels(page, dpi) * BYTES_PER_PIXEL;
+    }
+
+    private static long estimatePixels(final PDPage page, final int dpi) {
+        final PDRectangle cropBox = page.getCropBox();
+        final long width = (long) Math.ceil(cropBox.getWidth() / 72f * dpi);
+        final long height = (long) Math.ceil(cropBox.getHeight() / 72f * dpi);
+        return width * height;
+    }
+
+    private static long estimateRaster(final long pixels, final RenderImageType imageType) {
+        return (pixels * imageType.getBitsPerPixel() + 7) / 8;
+    }
+}
@@ -41,6 +41,14 @@ public class PageDiffCalculator {
         ++diffsFoundInExclusion;
     }
 
+    public void addDiffs(final int count) {
+        diffsFound += count;
+    }
+
+    public void addDiffsInExclusion(final int count) {
+        diffsFoundInExclusion += count;
+    }
+
     public boolean differencesFound() {
         double allowedDiffInPixels = totalPixels == 0 ? 0 : totalPixels * allowedDiffInPercent / 100.0;
         return diffsFound > allowedDiffInPixels;
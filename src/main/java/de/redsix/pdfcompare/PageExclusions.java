@@ -36,7 +36,31 @@ public class PageExclusions {
         return false;
     }
 
+    /**
+     * @return true, if an exclusion without coordinates excludes the whole page
+     */
+    public boolean excludesWholePage() {
+        for (PageArea exclusion : exclusions) {
+            if (!exclusion.hasCoordinates()) {
+                return true;
+            }
+        }
+        return delegate != null && delegate.excludesWholePage();
+    }
+
     public Collection<PageArea> getExclusions() {
         return exclusions;
     }
+
+    /**
+     * @return the exclusions of this page together with the exclusions, that apply to all pages
+     */
+    public Collection<PageArea> getAllExclusions() {
+        if (delegate == null) {
+            return exclusions;
+        }
+        final Collection<PageArea> allExclusions = new ArrayList<>(exclusions);
+        allExclusions.addAll(delegate.getAllExclusions());
+        return allExclusions;
+    }
 }
@@ -0,0 +1,236 @@
+package de.redsix.pdfcompare;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calculates a fingerprint of everything, that is rendered for a page: the page dictionary with its inherited attributes,
+ * the content streams and all resources, like fonts, images and forms, with their streams, and the entries of the document catalog,
+ * that PdfBox reads when rendering a page. Those are the /OCProperties, which decide, which optional content is visible,
+ * and the /AcroForm with settings like /NeedAppearances and the default resources, which influence how form fields appear.
+ * The /Fields of the /AcroForm are left out, as the fields of a page are already reached through its annotations.
+ * Pages with the same fingerprint render to the same image with PdfBox, so they do not need to be rendered to be compared.
+ * Pages with different fingerprints may still render to the same image, so they have to be rendered.
+ * <p>
+ * A PageFingerprint belongs to one document. It remembers the digests of streams, so resources shared by many pages
+ * are only read once. It is not thread-safe.
+ */
+class PageFingerprint {
+
+    /** Keys of the page, that are either replaced by the inherited value or do not influence the rendering. */
+    private static final Set<COSName> IGNORED_PAGE_KEYS = new HashSet<>(Arrays.asList(
+            COSName.PARENT, COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE));
+    /** Streams with only these filters are digested decoded, so a different compression of the same content does not matter. */
+    private static final Set<COSName> LOSSLESS_FILTERS = new HashSet<>(Arrays.asList(
+            COSName.FLATE_DECODE, COSName.LZW_DECODE, COSName.ASCII_HEX_DECODE, COSName.ASCII85_DECODE, COSName.RUN_LENGTH_DECODE));
+    private static final Set<COSName> STREAM_ENCODING_KEYS = new HashSet<>(Arrays.asList(
+            COSName.LENGTH, COSName.FILTER, COSName.DECODE_PARMS, COSName.DL));
+    /** Entries of the document catalog, that influence how the pages are rendered. */
+    private static final List<COSName> RENDERED_CATALOG_KEYS = Arrays.asList(COSName.OCPROPERTIES, COSName.ACRO_FORM);
+    /** The fields of all pages, that are left out of the /AcroForm, so a changed field does not change the other pages. */
+    private static final Set<COSName> IGNORED_ACRO_FORM_KEYS = Collections.singleton(COSName.FIELDS);
+    private static final byte[] NO_DATA = {};
+
+    private final COSDictionary catalog;
+    private final Map<COSStream, byte[]> streamDigests = new IdentityHashMap<>();
+
+    PageFingerprint(final PDDocument document) {
+        this.catalog = document.getDocumentCatalog().getCOSObject();
+    }
+
+    byte[] of(final PDPage page) throws IOException {
+        final Digest digest = new Digest(page.getCOSObject());
+        final PDRectangle mediaBox = page.getMediaBox();
+        final PDRectangle cropBox = page.getCropBox();
+        digest.add(mediaBox.getCOSArray());
+        digest.add(cropBox.getCOSArray());
+        digest.add(COSInteger.get(page.getRotation()));
+        final PDResources resources = page.getResources();
+        digest.add(resources != null ? resources.getCOSObject() : COSNull.NULL);
+        digest.addEntries(page.getCOSObject(), IGNORED_PAGE_KEYS);
+        for (COSName key : RENDERED_CATALOG_KEYS) {
+            final COSBase entry = catalog.getDictionaryObject(key);
+            if (COSName.ACRO_FORM.equals(key) && entry instanceof COSDictionary) {
+                digest.tag('D');
+                digest.addEntries((COSDictionary) entry, IGNORED_ACRO_FORM_KEYS);
+            } else {
+                digest.add(entry);
+            }
+        }
+        return digest.finish();
+    }
+
+    /**
+     * Walks the objects of a page depth-first. Objects, that were already visited, are added by the order of their first visit,
+     * so that shared objects and cycles, like annotations pointing back to their page, give the same digest in both documents.
+     * Other pages, for example the destinations of links, are not walked, as they are not rendered with this page.
+     */
+    private class Digest {
+
+        private final MessageDigest messageDigest = sha256();
+        private final Map<COSBase, Integer> visited = new IdentityHashMap<>();
+
+        private Digest(final COSDictionary page) {
+            visited.put(page, 0);
+        }
+
+        private void add(final COSBase object) throws IOException {
+            final COSBase base = object instanceof COSObject ? ((COSObject) object).getObject() : object;
+            if (base == null || base instanceof COSNull) {
+                tag('N');
+            } else if (base instanceof COSName) {
+                tag('/');
+                addBytes(((COSName) base).getName().getBytes(StandardCharsets.UTF_8));
+            } else if (base instanceof COSString) {
+                tag('S');
+                addBytes(((COSString) base).getBytes());
+            } else if (base instanceof COSInteger) {
+                tag('I');
+                addLong(((COSInteger) base).longValue());
+            } else if (base instanceof COSFloat) {
+                tag('F');
+                addLong(Float.floatToIntBits(((COSFloat) base).floatValue()));
+            } else if (base instanceof COSBoolean) {
+                tag(((COSBoolean) base).getValue() ? 't' : 'f');
+            } else if (visited.containsKey(base)) {
+                tag('R');
+                addLong(visited.get(base));
+            } else if (isPageTreeNode(base)) {
+                tag('P');
+            } else {
+                visited.put(base, visited.size());
+                if (base instanceof COSStream) {
+                    addStream((COSStream) base);
+                } else if (base instanceof COSDictionary) {
+                    tag('D');
+                    addEntries((COSDictionary) base, Collections.emptySet());
+                } else if (base instanceof COSArray) {
+                    final COSArray array = (COSArray) base;
+                    tag('A');
+                    addLong(array.size());
+                    for (int i = 0; i < array.size(); i++) {
+                        add(array.get(i));
+                    }
+                } else {
+                    throw new IOException("Unknown object " + base.getClass());
+                }
+            }
+        }
+
+        private void addEntries(final COSDictionary dictionary, final Set<COSName> ignoredKeys) throws IOException {
+            final List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            keys.removeAll(ignoredKeys);
+            // the order of the entries does not influence the rendering
+            keys.sort(COSName::compareTo);
+            addLong(keys.size());
+            for (COSName key : keys) {
+                add(key);
+                add(dictionary.getItem(key));
+            }
+        }
+
+        private void addStream(final COSStream stream) throws IOException {
+            tag('X');
+            final boolean decoded = isLosslesslyEncoded(stream);
+            addEntries(stream, decoded ? STREAM_ENCODING_KEYS : Collections.singleton(COSName.LENGTH));
+            byte[] streamDigest = streamDigests.get(stream);
+            if (streamDigest == null) {
+                streamDigest = digestData(stream, decoded);
+                streamDigests.put(stream, streamDigest);
+            }
+            addBytes(streamDigest);
+        }
+
+        private void tag(final char tag) {
+            messageDigest.update((byte) tag);
+        }
+
+        private void addLong(final long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                messageDigest.update((byte) (value >>> shift));
+            }
+        }
+
+        private void addBytes(final byte[] bytes) {
+            addLong(bytes.length);
+            messageDigest.update(bytes);
+        }
+
+        private byte[] finish() {
+            return messageDigest.digest();
+        }
+    }
+
+    private static boolean isPageTreeNode(final COSBase base) {
+        if (base instanceof COSDictionary) {
+            final COSName type = ((COSDictionary) base).getCOSName(COSName.TYPE);
+            return COSName.PAGE.equals(type) || COSName.PAGES.equals(type);
+        }
+        return false;
+    }
+
+    private static boolean isLosslesslyEncoded(final COSStream stream) {
+        final COSBase filters = stream.getFilters();
+        if (filters instanceof COSName) {
+            return LOSSLESS_FILTERS.contains(filters);
+        }
+        if (filters instanceof COSArray) {
+            for (COSBase filter : (COSArray) filters) {
+                if (!LOSSLESS_FILTERS.contains(filter instanceof COSObject ? ((COSObject) filter).getObject() : filter)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static byte[] digestData(final COSStream stream, final boolean decoded) throws IOException {
+        if (!stream.hasData()) {
+            return NO_DATA;
+        }
+        final MessageDigest digest = sha256();
+        try (InputStream in = decoded ? stream.createInputStream() : stream.createRawInputStream()) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -15,32 +15,53 @@
  */
 package de.redsix.pdfcompare;
 
-import static de.redsix.pdfcompare.Utilities.blockingExecutor;
 
 import de.redsix.pdfcompare.env.ConfigFileEnvironment;
 import de.redsix.pdfcompare.env.DefaultEnvironment;
 import de.redsix.pdfcompare.env.Environment;
 import de.redsix.pdfcompare.env.SimpleEnvironment;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.blend.BlendMode;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.*;
+import java.util.function.Function;
 
 /**
  * The PdfComparator is the entry point to use for comparing documents.
@@ -54,22 +75,47 @@ public class PdfComparator<T extends CompareResultImpl> {
 
     private static final Logger LOG = LoggerFactory.getLogger(PdfComparator.class);
 
-    private static final int TIMEOUT = 3;
-    private static final TimeUnit unit = TimeUnit.MINUTES;
     public static final int MARKER_WIDTH = 20;
+    /**
+     * Runs the comparisons started with {@link #compareAsync()}. Its threads are daemon threads and end, when they are idle,
+     * so they never keep the JVM running.
+     */
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(new Utilities.NamedThreadFactory("Compare", true));
 
     private Environment environment;
     private Exclusions exclusions;
-    private InputStreamSupplier expectedStreamSupplier;
-    private InputStreamSupplier actualStreamSupplier;
+    private RandomAccessReadSupplier expectedStreamSupplier;
+    private RandomAccessReadSupplier actualStreamSupplier;
+    private PdfCompareEngine sharedEngine;
+    private Function<PDDocument, PDFRenderer> pdfRendererFactory = PDFRenderer::new;
     private ExecutorService drawExecutor;
     private ExecutorService parrallelDrawExecutor;
     private ExecutorService diffExecutor;
+    private ForkJoinPool diffStripPool;
+    private MemoryBudget memoryBudget;
+    private RasterPool rasterPool;
+    private RenderCache renderCache;
+    /** The hashes of the inputs, when they were already calculated to find identical inputs, so the render cache can reuse them. */
+    private String expectedInputHash;
+    private String actualInputHash;
+    private Environment coarseEnvironment;
     private final T compareResult;
     private String expectedPassword = "";
     private String actualPassword = "";
     private boolean withIgnoreCalled = false;
+    private boolean verdictOnly = false;
+    private boolean failFast = false;
     private final ConcurrentLinkedQueue<Throwable> exceptionFromOtherThread = new ConcurrentLinkedQueue<>();
+    private final Set<Future<?>> renderingPages = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled = false;
+    private volatile boolean stopped = false;
+    /**
+     * Every page in drawing or diffing and every rendering task of this comparison is registered, so the comparison waits for them,
+     * before it finishes the result and closes the documents. The comparing thread is registered, too,
+     * so the phase only advances, when all pages are scheduled.
+     */
+    private final Phaser tasksInFlight = new Phaser(1);
+    private final Map<PDDocument, Lock> documentLocks = new ConcurrentHashMap<>();
 
     /**
      * Compare two PDFs, that are given as base64 encoded strings.
@@ -91,9 +137,46 @@ public class PdfComparator<T extends CompareResultImpl> {
      * @return A CompareResultImpl object, that contains the result of this compare.
      */
     public static <T extends CompareResultImpl> PdfComparator base64(String expectedPdfBase64, String actualPdfBase64, T compareResult) {
-        PdfComparator pdfComparator = new PdfComparator<>(compareResult);
-        pdfComparator.expectedStreamSupplier = () -> new ByteArrayInputStream(Base64.getDecoder().decode(expectedPdfBase64));
-        pdfComparator.actualStreamSupplier = () -> new ByteArrayInputStream(Base64.getDecoder().decode(actualPdfBase64));
+        return base64((CharSequence) expectedPdfBase64, (CharSequence) actualPdfBase64, compareResult);
+    }
+
+    /**
+     * Compare two PDFs, that are given as base64 encoded character sequences.
+     * Each document is decoded directly into a single buffer, when the comparison starts.
+     * The PdfComparator does not keep a reference to the base64 input after that.
+     *
+     * @param expectedPdfBase64 expected PDF in base64 encoded format
+     * @param actualPdfBase64   actual PDF in base64 encoded format
+     * @param compareResult     the CompareResult to use during this compare. Allows to provide CompareResultImpl Subtypes with Swapping for example.
+     * @return A CompareResultImpl object, that contains the result of this compare.
+     */
+    public static <T extends CompareResultImpl> PdfComparator<T> base64(CharSequence expectedPdfBase64, CharSequence actualPdfBase64,
+            T compareResult) {
+        Objects.requireNonNull(expectedPdfBase64, "expectedPdfBase64 is null");
+        Objects.requireNonNull(actualPdfBase64, "actualPdfBase64 is null");
+        final PdfComparator<T> pdfComparator = new PdfComparator<>(compareResult);
+        pdfComparator.expectedStreamSupplier = readOnce(expectedPdfBase64, base64 -> new RandomAccessReadBuffer(Base64Input.decode(base64)));
+        pdfComparator.actualStreamSupplier = readOnce(actualPdfBase64, base64 -> new RandomAccessReadBuffer(Base64Input.decode(base64)));
+        return pdfComparator;
+    }
+
+    /**
+     * Compare two PDFs, that are given as base64 encoded bytes, for example directly from a network buffer.
+     * The remaining bytes of the buffers are decoded, when the comparison starts. The positions of the buffers are not changed.
+     * The PdfComparator does not keep a reference to the buffers after that.
+     *
+     * @param expectedPdfBase64 expected PDF in base64 encoded format
+     * @param actualPdfBase64   actual PDF in base64 encoded format
+     * @param compareResult     the CompareResult to use during this compare. Allows to provide CompareResultImpl Subtypes with Swapping for example.
+     * @return A CompareResultImpl object, that contains the result of this compare.
+     */
+    public static <T extends CompareResultImpl> PdfComparator<T> base64(ByteBuffer expectedPdfBase64, ByteBuffer actualPdfBase64,
+            T compareResult) {
+        Objects.requireNonNull(expectedPdfBase64, "expectedPdfBase64 is null");
+        Objects.requireNonNull(actualPdfBase64, "actualPdfBase64 is null");
+        final PdfComparator<T> pdfComparator = new PdfComparator<>(compareResult);
+        pdfComparator.expectedStreamSupplier = readOnce(expectedPdfBase64, base64 -> new RandomAccessReadBuffer(Base64Input.decode(base64)));
+        pdfComparator.actualStreamSupplier = readOnce(actualPdfBase64, base64 -> new RandomAccessReadBuffer(Base64Input.decode(base64)));
         return pdfComparator;
     }
 
@@ -124,8 +207,8 @@ public class PdfComparator<T extends CompareResultImpl> {
         Objects.requireNonNull(expectedPdfFilename, "expectedPdfFilename is null");
         Objects.requireNonNull(actualPdfFilename, "actualPdfFilename is null");
         if (!expectedPdfFilename.equals(actualPdfFilename)) {
-            this.expectedStreamSupplier = () -> Files.newInputStream(Paths.get(expectedPdfFilename));
-            this.actualStreamSupplier = () -> Files.newInputStream(Paths.get(actualPdfFilename));
+            this.expectedStreamSupplier = () -> new RandomAccessReadBufferedFile(Paths.get(expectedPdfFilename));
+            this.actualStreamSupplier = () -> new RandomAccessReadBufferedFile(Paths.get(actualPdfFilename));
         }
     }
 
@@ -151,8 +234,8 @@ public class PdfComparator<T extends CompareResultImpl> {
         Objects.requireNonNull(expectedPath, "expectedPath is null");
         Objects.requireNonNull(actualPath, "actualPath is null");
         if (!expectedPath.equals(actualPath)) {
-            this.expectedStreamSupplier = () -> Files.newInputStream(expectedPath);
-            this.actualStreamSupplier = () -> Files.newInputStream(actualPath);
+            this.expectedStreamSupplier = () -> new RandomAccessReadBufferedFile(expectedPath);
+            this.actualStreamSupplier = () -> new RandomAccessReadBufferedFile(actualPath);
         }
     }
 
@@ -178,8 +261,8 @@ public class PdfComparator<T extends CompareResultImpl> {
         Objects.requireNonNull(expectedFile, "expectedFile is null");
         Objects.requireNonNull(actualFile, "actualFile is null");
         if (!expectedFile.equals(actualFile)) {
-            this.expectedStreamSupplier = () -> new FileInputStream(expectedFile);
-            this.actualStreamSupplier = () -> new FileInputStream(actualFile);
+            this.expectedStreamSupplier = () -> new RandomAccessReadBufferedFile(expectedFile);
+            this.actualStreamSupplier = () -> new RandomAccessReadBufferedFile(actualFile);
         }
     }
 
@@ -205,8 +288,8 @@ public class PdfComparator<T extends CompareResultImpl> {
         Objects.requireNonNull(expectedPdfIS, "expectedPdfIS is null");
         Objects.requireNonNull(actualPdfIS, "actualPdfIS is null");
         if (!expectedPdfIS.equals(actualPdfIS)) {
-            this.expectedStreamSupplier = () -> expectedPdfIS;
-            this.actualStreamSupplier = () -> actualPdfIS;
+            this.expectedStreamSupplier = buffered(() -> expectedPdfIS);
+            this.actualStreamSupplier = buffered(() -> actualPdfIS);
         }
     }
 
@@ -218,6 +301,28 @@ public class PdfComparator<T extends CompareResultImpl> {
         withEnvironment(environment);
     }
 
+    /**
+     * Renders and diffs the pages with the thread pools of the given engine, instead of creating
+     * new thread pools for this comparison. The engine is not closed after the comparison.
+     *
+     * @param engine the engine to use
+     * @return this
+     */
+    public PdfComparator<T> withEngine(final PdfCompareEngine engine) {
+        Objects.requireNonNull(engine, "engine is null");
+        this.sharedEngine = engine;
+        return this;
+    }
+
+    /**
+     * Creates the PDFRenderers, that render the pages of the documents, so tests can see, which pages are rendered.
+     */
+    /*package for Testing*/ PdfComparator<T> withPdfRendererFactory(final Function<PDDocument, PDFRenderer> pdfRendererFactory) {
+        Objects.requireNonNull(pdfRendererFactory, "pdfRendererFactory is null");
+        this.pdfRendererFactory = pdfRendererFactory;
+        return this;
+    }
+
     /**
      * Allows to inject an Environment that can override environment settings.
      * {@link SimpleEnvironment} is particularly useful if you want to override some properties.
@@ -352,6 +457,30 @@ public class PdfComparator<T extends CompareResultImpl> {
         return this;
     }
 
+    /**
+     * Only determines, whether the documents differ and where, without creating any diff images.
+     * This saves the memory and time needed for the result images, but the CompareResult can not be written.
+     * This can also be configured through the verdictOnly setting of the {@link Environment}.
+     *
+     * @return this
+     */
+    public PdfComparator<T> withVerdictOnly() {
+        verdictOnly = true;
+        return this;
+    }
+
+    /**
+     * Stops the comparison at the first page with a difference. Pages, that were not yet compared, are skipped
+     * and the CompareResult is marked as incomplete.
+     * This can also be configured through the failFast setting of the {@link Environment}.
+     *
+     * @return this
+     */
+    public PdfComparator<T> withFailFast() {
+        failFast = true;
+        return this;
+    }
+
     private Exclusions getExclusions() {
         if (exclusions == null) {
             exclusions = new Exclusions(getEnvironment());
@@ -367,11 +496,23 @@ public class PdfComparator<T extends CompareResultImpl> {
     }
 
     private void buildEnvironment() {
+        if (verdictOnly && !getEnvironment().verdictOnly()) {
+            environment = new SimpleEnvironment(environment).setVerdictOnly(true);
+        }
+        if (failFast && !getEnvironment().failFast()) {
+            environment = new SimpleEnvironment(environment).setFailFast(true);
+        }
         compareResult.setEnvironment(getEnvironment());
+    }
 
-        drawExecutor = blockingExecutor("Draw", 1, 50, environment);
-        parrallelDrawExecutor = blockingExecutor("ParallelDraw", 2, 4, environment);
-        diffExecutor = blockingExecutor("Diff", 1, 2, environment);
+    private PdfCompareEngine buildEngine() {
+        if (sharedEngine != null) {
+            if (sharedEngine.isClosed()) {
+                throw new IllegalStateException("The PdfCompareEngine is already closed");
+            }
+            return sharedEngine;
+        }
+        return PdfCompareEngine.forSingleComparison(environment);
     }
 
     /**
@@ -389,32 +530,17 @@ public class PdfComparator<T extends CompareResultImpl> {
                 return compareResult;
             }
             buildEnvironment();
-            try (final InputStream expectedInputStream = expectedStreamSupplier.get()) {
-                try (final RandomAccessRead expectedStream = new RandomAccessReadBuffer(expectedInputStream)) {
-                    expectedInputStream.close();
-                    try (final InputStream actualInputStream = actualStreamSupplier.get()) {
-                        try (final RandomAccessRead actualStream = new RandomAccessReadBuffer(actualInputStream)) {
-                            actualInputStream.close();
-                            try (PDDocument expectedDocument = Loader
-                                    .loadPDF(expectedStream, expectedPassword, Utilities.getMemorySettings(environment.getDocumentCacheSize()))) {
-                                try (PDDocument actualDocument = Loader
-                                        .loadPDF(actualStream, actualPassword, Utilities.getMemorySettings(environment.getDocumentCacheSize()))) {
-                                    compare(expectedDocument, actualDocument);
-                                }
-                            }
-                        }
-                    } catch (NoSuchFileException ex) {
-                        addSingleDocumentToResult(expectedStream, environment.getActualColor().getRGB());
-                        compareResult.expectedOnly();
-                    }
-                }
-            } catch (NoSuchFileException ex) {
-                try (final RandomAccessRead actualStream = new RandomAccessReadBuffer(actualStreamSupplier.get())) {
-                    addSingleDocumentToResult(actualStream, environment.getExpectedColor().getRGB());
-                    compareResult.actualOnly();
-                } catch (NoSuchFileException innerEx) {
-                    LOG.warn("No files found to compare. Tried Expected: '{}' and Actual: '{}'", ex.getFile(), innerEx.getFile());
-                    compareResult.noPagesFound();
+            if (skipsIdenticalPages() && haveIdenticalContent()) {
+                LOG.debug("The documents are identical, so they are not compared page by page");
+                addIdenticalDocument();
+                return compareResult;
+            }
+            final PdfCompareEngine engine = buildEngine();
+            try {
+                loadAndCompare(engine);
+            } finally {
+                if (engine != sharedEngine) {
+                    engine.close();
                 }
             }
         } finally {
@@ -423,23 +549,142 @@ public class PdfComparator<T extends CompareResultImpl> {
         return compareResult;
     }
 
-    private void compare(final PDDocument expectedDocument, final PDDocument actualDocument) throws IOException {
+    private void loadAndCompare(final PdfCompareEngine engine) throws IOException {
+        checkCancelled();
+        final long loadStart = System.nanoTime();
+        final Future<LoadedDocument> actualFuture = loadInBackground(actualStreamSupplier, actualPassword, engine);
+        final LoadedDocument expectedDocument;
+        try {
+            expectedDocument = load(expectedStreamSupplier, expectedPassword);
+        } catch (NoSuchFileException ex) {
+            try (LoadedDocument actual = getLoaded(actualFuture)) {
+                documentsLoaded(loadStart);
+                addSingleDocumentToResult(actual.document, environment.getExpectedColor().getRGB());
+                compareResult.actualOnly();
+            } catch (NoSuchFileException innerEx) {
+                LOG.warn("No files found to compare. Tried Expected: '{}' and Actual: '{}'", ex.getFile(), innerEx.getFile());
+                compareResult.noPagesFound();
+            }
+            return;
+        } catch (IOException | RuntimeException | Error e) {
+            discard(actualFuture);
+            throw e;
+        }
+        try (LoadedDocument expected = expectedDocument) {
+            if (cancelled) {
+                discard(actualFuture);
+                checkCancelled();
+            }
+            try (LoadedDocument actual = getLoaded(actualFuture)) {
+                documentsLoaded(loadStart);
+                compare(expected, actual, engine);
+            } catch (NoSuchFileException ex) {
+                documentsLoaded(loadStart);
+                addSingleDocumentToResult(expected.document, environment.getActualColor().getRGB());
+                compareResult.expectedOnly();
+            }
+        }
+    }
+
+    /**
+     * Does the comparison like {@link #compare()}, but in a separate thread.
+     * Cancelling the returned future stops the comparison: documents, that are still loaded, are closed, as soon as
+     * their pages are read, pages, that are not yet rendered or diffed, are skipped and pages in rendering are interrupted.
+     *
+     * @return a future, that completes with the CompareResult or with the exception thrown by {@link #compare()}
+     */
+    public CompletableFuture<T> compareAsync() {
+        final CompletableFuture<T> future = new CompletableFuture<T>() {
+
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                final boolean result = super.cancel(mayInterruptIfRunning);
+                if (result) {
+                    PdfComparator.this.cancel();
+                }
+                return result;
+            }
+        };
+        ASYNC_EXECUTOR.execute(() -> {
+            try {
+                future.complete(compare());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private void cancel() {
+        LOG.debug("Cancelling comparison");
+        cancelled = true;
+        stopRemainingPages();
+    }
+
+    private void stopAtDifference() {
+        if (environment.failFast() && compareResult.isNotEqual() && !stopped) {
+            LOG.debug("Stopping comparison at the first difference");
+            stopRemainingPages();
+        }
+    }
+
+    /**
+     * Skips all pages, that are not compared yet, and interrupts the pages in rendering. The comparison still waits for the tasks,
+     * that already run, so the result does not change anymore, when {@link #compare()} returns.
+     */
+    private void stopRemainingPages() {
+        stopped = true;
+        renderingPages.forEach(f -> f.cancel(true));
+        if (memoryBudget != null) {
+            memoryBudget.wakeUp();
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("The comparison was cancelled");
+        }
+    }
+
+    private void compare(final LoadedDocument expected, final LoadedDocument actual, final PdfCompareEngine engine) throws IOException {
+        checkCancelled();
+        final PDDocument expectedDocument = expected.document;
+        final PDDocument actualDocument = actual.document;
+        drawExecutor = engine.getDrawExecutor();
+        parrallelDrawExecutor = engine.getParallelDrawExecutor();
+        diffExecutor = engine.getDiffExecutor();
+        diffStripPool = engine.getDiffStripPool();
+        memoryBudget = engine.getMemoryBudget();
+        rasterPool = engine.getRasterPool();
+        renderCache = engine.getRenderCache();
+        final String expectedHash = renderCache == null ? null
+                : expectedInputHash != null ? expectedInputHash : RenderCache.documentHash(expected.stream);
+        final String actualHash = renderCache == null || !renderCache.cachesActual() ? null
+                : actualInputHash != null ? actualInputHash : RenderCache.documentHash(actual.stream);
         expectedDocument.setResourceCache(new ResourceCacheWithLimitedImages(environment));
-        PDFRenderer expectedPdfRenderer = new PDFRenderer(expectedDocument);
+        PDFRenderer expectedPdfRenderer = pdfRendererFactory.apply(expectedDocument);
 
         actualDocument.setResourceCache(new ResourceCacheWithLimitedImages(environment));
-        PDFRenderer actualPdfRenderer = new PDFRenderer(actualDocument);
+        PDFRenderer actualPdfRenderer = pdfRendererFactory.apply(actualDocument);
 
         final int minPageCount = Math.min(expectedDocument.getNumberOfPages(), actualDocument.getNumberOfPages());
-        CountDownLatch latch = new CountDownLatch(minPageCount);
-        for (int pageIndex = 0; pageIndex < minPageCount; pageIndex++) {
-            drawImage(latch, pageIndex, expectedDocument, actualDocument, expectedPdfRenderer, actualPdfRenderer);
+        final BitSet identicalPages = identicalPages(expectedDocument, actualDocument, minPageCount);
+        coarseEnvironment = coarseEnvironment();
+        boolean pagesScheduled = false;
+        try {
+            schedulePages(minPageCount, identicalPages, expectedDocument, actualDocument, expectedPdfRenderer, actualPdfRenderer, expectedHash,
+                    actualHash);
+            pagesScheduled = true;
+        } finally {
+            if (!pagesScheduled) {
+                stopRemainingPages();
+            }
+            Utilities.await(tasksInFlight, "FullCompare", environment);
         }
-        Utilities.await(latch, "FullCompare", environment);
-        Utilities.shutdownAndAwaitTermination(drawExecutor, "Draw", environment);
-        Utilities.shutdownAndAwaitTermination(parrallelDrawExecutor, "Parallel Draw", environment);
-        Utilities.shutdownAndAwaitTermination(diffExecutor, "Diff", environment);
-        if (expectedDocument.getNumberOfPages() > minPageCount) {
+        checkCancelled();
+        if (stopped && expectedDocument.getNumberOfPages() != actualDocument.getNumberOfPages()) {
+            compareResult.incomplete();
+        } else if (expectedDocument.getNumberOfPages() > minPageCount) {
             addExtraPages(expectedDocument, expectedPdfRenderer, minPageCount, environment.getActualColor().getRGB(), true);
         } else if (actualDocument.getNumberOfPages() > minPageCount) {
             addExtraPages(actualDocument, actualPdfRenderer, minPageCount, environment.getExpectedColor().getRGB(), false);
@@ -451,71 +696,238 @@ public class PdfComparator<T extends CompareResultImpl> {
         }
     }
 
-    private void drawImage(final CountDownLatch latch, final int pageIndex,
+    private void schedulePages(final int minPageCount, final BitSet identicalPages, final PDDocument expectedDocument,
+            final PDDocument actualDocument, final PDFRenderer expectedPdfRenderer, final PDFRenderer actualPdfRenderer,
+            final String expectedHash, final String actualHash) {
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(environment.getOverallTimeout());
+        for (int pageIndex = 0; pageIndex < minPageCount; pageIndex++) {
+            if (stopped) {
+                compareResult.incomplete();
+                break;
+            }
+            if (skipsExcludedPage(pageIndex)) {
+                LOG.trace("Skipping page {}, because it is excluded as a whole", pageIndex);
+                compareResult.addPage(new PageDiffCalculator(0, 0), pageIndex);
+                continue;
+            }
+            // the documents are locked, because their pages may be rendered at the same time
+            final long pageBytes;
+            final DiffImage bandedDiffImage;
+            lockDocuments(expectedDocument, actualDocument);
+            try {
+                if (identicalPages.get(pageIndex)) {
+                    LOG.trace("Skipping page {}, because it is identical in both documents", pageIndex);
+                    compareResult.addPage(new PageDiffCalculator(0, 0), pageIndex);
+                    continue;
+                }
+                final PDPage expectedPage = expectedDocument.getPage(pageIndex);
+                final PDPage actualPage = actualDocument.getPage(pageIndex);
+                bandedDiffImage = bandedDiffImage(pageIndex, expectedPage, actualPage);
+                pageBytes = bandedDiffImage != null
+                        ? MemoryBudget.estimateBandedPage(expectedPage, actualPage, environment.getDPI(), environment.getRenderImageType(),
+                                !environment.verdictOnly())
+                        : MemoryBudget.estimatePage(expectedPage, actualPage, environment.getDPI(), environment.getRenderImageType(),
+                                !environment.verdictOnly());
+            } finally {
+                unlockDocuments(expectedDocument, actualDocument);
+            }
+            try {
+                if (!memoryBudget.acquire(pageBytes, deadline - System.nanoTime(), () -> stopped)) {
+                    if (stopped) {
+                        continue;
+                    }
+                    throw new RenderingException(String.format("Waiting for memory to render page %d timed out after %d MINUTES",
+                            pageIndex + 1, environment.getOverallTimeout()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RenderingException("Waiting for memory to render page " + (pageIndex + 1) + " was interrupted", e);
+            }
+            drawImage(pageIndex, pageBytes, expectedDocument, actualDocument, expectedPdfRenderer, actualPdfRenderer, expectedHash,
+                    actualHash, bandedDiffImage);
+        }
+    }
+
+    private void drawImage(final int pageIndex, final long pageBytes,
             final PDDocument expectedDocument, final PDDocument actualDocument,
-            final PDFRenderer expectedPdfRenderer, final PDFRenderer actualPdfRenderer) {
+            final PDFRenderer expectedPdfRenderer, final PDFRenderer actualPdfRenderer, final String expectedHash, final String actualHash,
+            final DiffImage bandedDiffImage) {
+        // the page stays registered, until it is diffed
+        tasksInFlight.register();
+        try {
+            drawPage(pageIndex, pageBytes, expectedDocument, actualDocument, expectedPdfRenderer, actualPdfRenderer, expectedHash, actualHash,
+                    bandedDiffImage);
+        } catch (RuntimeException | Error e) {
+            memoryBudget.release(pageBytes);
+            tasksInFlight.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    private void drawPage(final int pageIndex, final long pageBytes,
+            final PDDocument expectedDocument, final PDDocument actualDocument,
+            final PDFRenderer expectedPdfRenderer, final PDFRenderer actualPdfRenderer, final String expectedHash, final String actualHash,
+            final DiffImage bandedDiffImage) {
         drawExecutor.execute(() -> {
+            boolean diffScheduled = false;
             try {
+                if (stopped) {
+                    compareResult.incomplete();
+                    return;
+                }
                 LOG.trace("Drawing page {}", pageIndex);
-                final Future<ImageWithDimension> expectedImageFuture = parrallelDrawExecutor
-                        .submit(() -> renderPageAsImage(expectedDocument, expectedPdfRenderer, pageIndex, environment));
-                final Future<ImageWithDimension> actualImageFuture = parrallelDrawExecutor
-                        .submit(() -> renderPageAsImage(actualDocument, actualPdfRenderer, pageIndex, environment));
-                final ImageWithDimension expectedImage = getImage(expectedImageFuture, pageIndex, "expected document");
-                final ImageWithDimension actualImage = getImage(actualImageFuture, pageIndex, "actual document");
-                final DiffImage diffImage = new DiffImage(expectedImage, actualImage, pageIndex, environment, getExclusions(), compareResult);
+                final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(environment.getPageTimeout());
+                List<Rectangle> regions = null;
+                if (coarseEnvironment != null) {
+                    regions = differingRegions(pageIndex, deadline, expectedDocument, actualDocument, expectedPdfRenderer, actualPdfRenderer);
+                    if (regions != null && regions.isEmpty()) {
+                        if (!environment.verifyCoarselyEqualPages()) {
+                            LOG.trace("Page {} is equal at {} DPI", pageIndex, coarseEnvironment.getDPI());
+                            compareResult.resolvedCoarsely();
+                            compareResult.addPage(new PageDiffCalculator(0, 0), pageIndex);
+                            return;
+                        }
+                        regions = null;
+                    }
+                    compareResult.resolvedAtFullResolution();
+                }
+                if (bandedDiffImage != null) {
+                    diffInBands(bandedDiffImage, pageIndex, deadline, expectedDocument, actualDocument, expectedPdfRenderer, actualPdfRenderer);
+                    return;
+                }
+                // the expected page is rendered completely, when a diff image is created, so the diff image shows the whole page
+                final List<Rectangle> expectedRegions = environment.verdictOnly() ? regions : null;
+                final List<Rectangle> actualRegions = regions;
+                final Future<ImageWithDimension> expectedImageFuture = submitRendering(
+                        () -> renderPage(expectedDocument, expectedPdfRenderer, pageIndex, expectedHash, expectedRegions));
+                final Future<ImageWithDimension> actualImageFuture = submitRendering(
+                        () -> renderPage(actualDocument, actualPdfRenderer, pageIndex, actualHash, actualRegions));
+                renderingPages.add(expectedImageFuture);
+                renderingPages.add(actualImageFuture);
+                final ImageWithDimension expectedImage;
+                final ImageWithDimension actualImage;
+                try {
+                    expectedImage = getImage(expectedImageFuture, deadline, pageIndex, "expected document");
+                    actualImage = getImage(actualImageFuture, deadline, pageIndex, "actual document");
+                } finally {
+                    renderingPages.remove(expectedImageFuture);
+                    renderingPages.remove(actualImageFuture);
+                }
+                if (regions != null) {
+                    copyOutsideOfRegions(expectedImage.bufferedImage, actualImage.bufferedImage, regions);
+                }
+                final DiffImage diffImage = new DiffImage(expectedImage, actualImage, pageIndex, environment, getExclusions(), compareResult)
+                        .withStripPool(diffStripPool);
                 LOG.trace("Enqueueing page {}.", pageIndex);
                 diffExecutor.execute(() -> {
                     LOG.trace("Diffing page {}", diffImage);
                     try {
-                        diffImage.diffImages();
+                        if (stopped) {
+                            compareResult.incomplete();
+                        } else {
+                            diffImage.diffImages();
+                            stopAtDifference();
+                        }
                     } catch (Throwable t) {
                         addErrorPage(pageIndex, "An error occurred, while diffing this page", t);
+                    } finally {
+                        // the page is released first, so the budget has room to keep its images for reuse
+                        memoryBudget.release(pageBytes);
+                        if (compareResult.reusesPageImages()) {
+                            rasterPool.release(expectedImage.bufferedImage);
+                            rasterPool.release(actualImage.bufferedImage);
+                        }
+                        tasksInFlight.arriveAndDeregister();
                     }
                     LOG.trace("DONE Diffing page {}", diffImage);
                 });
+                diffScheduled = true;
                 LOG.trace("DONE drawing page {}", pageIndex);
             } catch (Throwable t) {
                 addErrorPage(pageIndex, "An error occurred, while rendering this page", t);
             } finally {
-                latch.countDown();
+                if (!diffScheduled) {
+                    memoryBudget.release(pageBytes);
+                    tasksInFlight.arriveAndDeregister();
+                }
             }
         });
     }
 
+    /**
+     * Renders in the parallel draw executor. The rendering is tracked, so the comparison waits for it, even when it is cancelled.
+     */
+    private <I> Future<I> submitRendering(final Callable<I> rendering) {
+        final TrackedTask<I> task = new TrackedTask<>(rendering, tasksInFlight);
+        try {
+            parrallelDrawExecutor.execute(task);
+        } catch (RuntimeException | Error e) {
+            task.finish();
+            throw e;
+        }
+        return task;
+    }
+
     private void addErrorPage(int pageIndex, String message, Throwable t) {
+        if (stopped) {
+            compareResult.incomplete();
+            return;
+        }
         LOG.error(message, t);
         exceptionFromOtherThread.add(t);
+        if (environment.verdictOnly()) {
+            compareResult.addPage(new PageDiffCalculator(new PageArea(pageIndex + 1)), pageIndex);
+            stopAtDifference();
+            return;
+        }
         StacktraceImage stacktraceImage = new StacktraceImage(message, t, environment);
         ImageWithDimension errorImage = stacktraceImage.getImage();
         compareResult.addPage(new PageDiffCalculator(new PageArea(pageIndex + 1)), pageIndex, stacktraceImage.getBlankImage(), errorImage, errorImage);
+        stopAtDifference();
     }
 
-    private ImageWithDimension getImage(final Future<ImageWithDimension> imageFuture, final int pageIndex, final String type) {
+    private <I> I getImage(final Future<I> imageFuture, final long deadline, final int pageIndex, final String type) {
         try {
-            return imageFuture.get(TIMEOUT, unit);
+            return imageFuture.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RenderingException("Waiting for Future was interrupted while rendering page " + (pageIndex + 1) + " of " + type, e);
         } catch (TimeoutException e) {
-            String msg = String.format("Waiting for Future timed out after %d %s while rendering page %d of %s", TIMEOUT, unit, pageIndex + 1, type);
+            imageFuture.cancel(true);
+            String msg = String.format("Waiting for Future timed out after %d SECONDS while rendering page %d of %s",
+                    environment.getPageTimeout(), pageIndex + 1, type);
             throw new RenderingException(msg, e);
         } catch (ExecutionException e) {
             throw new RenderingException("Error while rendering page " + (pageIndex + 1) + " of " + type, e);
         }
     }
 
-    private void addSingleDocumentToResult(RandomAccessRead expectedPdfIS, int markerColor) throws IOException {
-        try (PDDocument expectedDocument = Loader.loadPDF(expectedPdfIS)) {
-            PDFRenderer expectedPdfRenderer = new PDFRenderer(expectedDocument);
-            addExtraPages(expectedDocument, expectedPdfRenderer, 0, markerColor, true);
-        }
+    private void addSingleDocumentToResult(PDDocument document, int markerColor) throws IOException {
+        PDFRenderer pdfRenderer = pdfRendererFactory.apply(document);
+        addExtraPages(document, pdfRenderer, 0, markerColor, true);
     }
 
     private void addExtraPages(final PDDocument document, final PDFRenderer pdfRenderer, final int minPageCount,
             final int color, final boolean expected) throws IOException {
         for (int pageIndex = minPageCount; pageIndex < document.getNumberOfPages(); pageIndex++) {
-            ImageWithDimension image = renderPageAsImage(document, pdfRenderer, pageIndex, environment);
+            if (environment.failFast() && compareResult.isNotEqual()) {
+                compareResult.incomplete();
+                break;
+            }
+            final Exclusions exclusions = getExclusions();
+            final PageDiffCalculator diffCalculator;
+            if (exclusions.forPage(pageIndex + 1).contains(0, 0)) {
+                diffCalculator = excludedPageDiffCalculator(pageIndex);
+            } else {
+                diffCalculator = new PageDiffCalculator(new PageArea(pageIndex + 1));
+            }
+            if (environment.verdictOnly()) {
+                compareResult.addPage(diffCalculator, pageIndex);
+                continue;
+            }
+            // the rendered page is the diff image, so it is rendered in color for the markers
+            ImageWithDimension image = withPageDimension(pdfRenderer.renderImageWithDPI(pageIndex, environment.getDPI()),
+                    document.getPage(pageIndex));
             final DataBuffer dataBuffer = image.bufferedImage.getRaster().getDataBuffer();
             for (int i = 0; i < image.bufferedImage.getWidth() * MARKER_WIDTH; i++) {
                 dataBuffer.setElem(i, color);
@@ -525,15 +937,6 @@ public class PdfComparator<T extends CompareResultImpl> {
                     dataBuffer.setElem(i * image.bufferedImage.getWidth() + j, color);
                 }
             }
-            final Exclusions exclusions = getExclusions();
-            final PageDiffCalculator diffCalculator;
-            if (exclusions.forPage(pageIndex + 1).contains(0, 0)) {
-                diffCalculator = new PageDiffCalculator(0,0);
-                diffCalculator.diffFoundInExclusion();
-                diffCalculator.addDiffArea(new PageArea(pageIndex + 1));
-            } else {
-                diffCalculator = new PageDiffCalculator(new PageArea(pageIndex + 1));
-            }
             if (expected) {
                 compareResult.addPage(diffCalculator, pageIndex, image, blank(image), image);
             } else {
@@ -542,31 +945,734 @@ public class PdfComparator<T extends CompareResultImpl> {
         }
     }
 
+    /**
+     * Pages are compared at the coarse DPI first, only when no images of equal pages are needed,
+     * as equal pages are not rendered at the configured DPI then.
+     *
+     * @return the environment to render pages at the coarse DPI or null, when pages are only compared at the configured DPI
+     */
+    private Environment coarseEnvironment() {
+        final int coarseDPI = environment.getCoarseDPI();
+        if (coarseDPI <= 0 || coarseDPI >= environment.getDPI() || compareResult.needsImagesOfAllPages()
+                || !environment.verdictOnly() && environment.addEqualPagesToResult()) {
+            return null;
+        }
+        return new SimpleEnvironment(environment).setDPI(coarseDPI);
+    }
+
+    /**
+     * Renders both pages at the coarse DPI and compares them pixel by pixel. Exclusions are not applied, because they
+     * are given for the configured DPI. So a page with differences only in excluded areas is compared at the configured DPI.
+     *
+     * @return the regions, that differ at the coarse DPI, scaled to the configured DPI, an empty list, when the pages are equal,
+     * or null, when the whole pages shall be rendered at the configured DPI
+     */
+    private List<Rectangle> differingRegions(final int pageIndex, final long deadline,
+            final PDDocument expectedDocument, final PDDocument actualDocument,
+            final PDFRenderer expectedPdfRenderer, final PDFRenderer actualPdfRenderer) {
+        final Future<ImageWithDimension> expectedImageFuture = submitRendering(
+                () -> renderCoarsePage(expectedDocument, expectedPdfRenderer, pageIndex));
+        final Future<ImageWithDimension> actualImageFuture = submitRendering(
+                () -> renderCoarsePage(actualDocument, actualPdfRenderer, pageIndex));
+        renderingPages.add(expectedImageFuture);
+        renderingPages.add(actualImageFuture);
+        ImageWithDimension expectedImage = null;
+        ImageWithDimension actualImage = null;
+        try {
+            expectedImage = getImage(expectedImageFuture, deadline, pageIndex, "expected document");
+            actualImage = getImage(actualImageFuture, deadline, pageIndex, "actual document");
+            final BufferedImage expectedBuffImage = expectedImage.bufferedImage;
+            final BufferedImage actualBuffImage = actualImage.bufferedImage;
+            if (expectedBuffImage.getWidth() != actualBuffImage.getWidth() || expectedBuffImage.getHeight() != actualBuffImage.getHeight()) {
+                return null;
+            }
+            final Dimension size;
+            lockDocuments(expectedDocument, actualDocument);
+            try {
+                size = regionRenderingSize(expectedDocument.getPage(pageIndex), actualDocument.getPage(pageIndex));
+            } finally {
+                unlockDocuments(expectedDocument, actualDocument);
+            }
+            final int[] expectedPixels = pixels(expectedBuffImage);
+            final int[] actualPixels = pixels(actualBuffImage);
+            if (size == null) {
+                return Arrays.equals(expectedPixels, actualPixels) ? Collections.emptyList() : null;
+            }
+            return DiffRegions.find(expectedPixels, actualPixels, expectedBuffImage.getWidth(), expectedBuffImage.getHeight(),
+                    (double) environment.getDPI() / coarseEnvironment.getDPI(), size.width, size.height);
+        } finally {
+            renderingPages.remove(expectedImageFuture);
+            renderingPages.remove(actualImageFuture);
+            if (expectedImage != null) {
+                rasterPool.release(expectedImage.bufferedImage);
+            }
+            if (actualImage != null) {
+                rasterPool.release(actualImage.bufferedImage);
+            }
+        }
+    }
+
+    private ImageWithDimension renderCoarsePage(final PDDocument document, final PDFRenderer pdfRenderer, final int pageIndex)
+            throws IOException {
+        final Lock lock = documentLock(document);
+        lock.lock();
+        try {
+            return renderPageAsImage(document, pdfRenderer, pageIndex, coarseEnvironment, rasterPool);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives the pixels of a coarse image. Images rendered into the pool in RGB are TYPE_INT_RGB, others are converted to the same format.
+     */
+    private static int[] pixels(final BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB && DiffImage.hasDirectPixels(image)) {
+            return DiffImage.getPixels(image);
+        }
+        final int[] pixels = DiffImage.copyPixels(image);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] &= 0xFFFFFF;
+        }
+        return pixels;
+    }
+
+    /**
+     * Only regions of pages are rendered, when both pages are rendered into pooled images of the same size.
+     *
+     * @return the size of the pages at the configured DPI or null, when the whole pages shall be rendered
+     */
+    private Dimension regionRenderingSize(final PDPage expectedPage, final PDPage actualPage) {
+        final float scale = environment.getDPI() / 72f;
+        final Dimension size = imageSize(expectedPage, scale);
+        if (size == null || !size.equals(imageSize(actualPage, scale)) || hasBlendMode(expectedPage) || hasBlendMode(actualPage)) {
+            return null;
+        }
+        return size;
+    }
+
+    /**
+     * Pages are rendered and diffed in bands, when one of them is larger than the tiled rendering threshold and the result
+     * does not need the complete images of the expected and the actual page. Pages with blend modes are always rendered completely,
+     * because PdfBox renders them into a transparent image first.
+     *
+     * @return the DiffImage to diff the pages band by band or null, when the pages are rendered completely
+     */
+    private DiffImage bandedDiffImage(final int pageIndex, final PDPage expectedPage, final PDPage actualPage) {
+        final int threshold = environment.getTiledRenderingThreshold();
+        if (threshold <= 0 || compareResult.needsImagesOfAllPages()) {
+            return null;
+        }
+        final float scale = environment.getDPI() / 72f;
+        final Dimension expectedSize = imageSize(expectedPage, scale);
+        final Dimension actualSize = imageSize(actualPage, scale);
+        if (expectedSize == null || actualSize == null
+                || Math.max((long) expectedSize.width * expectedSize.height, (long) actualSize.width * actualSize.height) <= threshold * 1_000_000L
+                || hasBlendMode(expectedPage) || hasBlendMode(actualPage)) {
+            return null;
+        }
+        return new DiffImage(expectedSize, actualSize, Math.max(pageWidth(expectedPage), pageWidth(actualPage)),
+                Math.max(pageHeight(expectedPage), pageHeight(actualPage)), pageIndex, environment, getExclusions(), compareResult)
+                .withStripPool(diffStripPool);
+    }
+
+    /**
+     * Renders and diffs large pages band by band in the drawing thread. The bands of the expected and the actual page are
+     * rendered in parallel into pooled images, so only a band of each page and the diff image are held in memory.
+     */
+    private void diffInBands(final DiffImage diffImage, final int pageIndex, final long deadline,
+            final PDDocument expectedDocument, final PDDocument actualDocument,
+            final PDFRenderer expectedPdfRenderer, final PDFRenderer actualPdfRenderer) {
+        final float scale = environment.getDPI() / 72f;
+        final Dimension expectedSize;
+        final Dimension actualSize;
+        lockDocuments(expectedDocument, actualDocument);
+        try {
+            expectedSize = imageSize(expectedDocument.getPage(pageIndex), scale);
+            actualSize = imageSize(actualDocument.getPage(pageIndex), scale);
+        } finally {
+            unlockDocuments(expectedDocument, actualDocument);
+        }
+        final int height = Math.max(expectedSize.height, actualSize.height);
+        final int bandHeight = DiffImage.getBandHeight(Math.max(expectedSize.width, actualSize.width));
+        for (int fromY = 0; fromY < height; fromY += bandHeight) {
+            if (stopped) {
+                compareResult.incomplete();
+                return;
+            }
+            final int bandY = fromY;
+            final Future<BufferedImage> expectedBandFuture = submitRendering(
+                    () -> renderBand(expectedDocument, expectedPdfRenderer, pageIndex, scale, expectedSize, bandY, bandHeight));
+            final Future<BufferedImage> actualBandFuture = submitRendering(
+                    () -> renderBand(actualDocument, actualPdfRenderer, pageIndex, scale, actualSize, bandY, bandHeight));
+            renderingPages.add(expectedBandFuture);
+            renderingPages.add(actualBandFuture);
+            BufferedImage expectedBand = null;
+            BufferedImage actualBand = null;
+            try {
+                expectedBand = getImage(expectedBandFuture, deadline, pageIndex, "expected document");
+                actualBand = getImage(actualBandFuture, deadline, pageIndex, "actual document");
+                diffImage.diffBand(fromY, Math.min(fromY + bandHeight, height), expectedBand, actualBand);
+            } finally {
+                renderingPages.remove(expectedBandFuture);
+                renderingPages.remove(actualBandFuture);
+                rasterPool.release(expectedBand);
+                rasterPool.release(actualBand);
+            }
+        }
+        diffImage.finishBands();
+        stopAtDifference();
+    }
+
+    /**
+     * Renders the rows from fromY of a page into a pooled image of the band height.
+     *
+     * @return the band or null, when the page ends before fromY
+     */
+    private BufferedImage renderBand(final PDDocument document, final PDFRenderer pdfRenderer, final int pageIndex, final float scale,
+            final Dimension size, final int fromY, final int bandHeight) throws IOException {
+        if (fromY >= size.height) {
+            return null;
+        }
+        final BufferedImage band = rasterPool.borrow(size.width, bandHeight, environment.getRenderImageType().getBufferedImageType());
+        try {
+            final Lock lock = documentLock(document);
+            lock.lock();
+            try {
+                renderRegion(pageIndex, pdfRenderer, scale, band, new Rectangle(0, fromY, size.width, bandHeight));
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            rasterPool.release(band);
+            throw e;
+        }
+        return band;
+    }
+
+    /**
+     * Copies the pixels of the expected image outside of the rendered regions into the actual image. The pages are
+     * equal there at the coarse DPI, so the actual image looks like a completely rendered page.
+     */
+    private static void copyOutsideOfRegions(final BufferedImage expectedImage, final BufferedImage actualImage,
+            final List<Rectangle> regions) {
+        if (expectedImage.getWidth() != actualImage.getWidth() || expectedImage.getHeight() != actualImage.getHeight()
+                || expectedImage.getType() != actualImage.getType()) {
+            return;
+        }
+        final boolean direct = DiffImage.hasDirectPixels(expectedImage) && DiffImage.hasDirectPixels(actualImage);
+        final int[] expectedPixels = direct ? DiffImage.getPixels(expectedImage) : null;
+        final int[] actualPixels = direct ? DiffImage.getPixels(actualImage) : null;
+        final WritableRaster expectedRaster = expectedImage.getRaster();
+        final WritableRaster actualRaster = actualImage.getRaster();
+        final int width = expectedImage.getWidth();
+        final boolean[] inRegion = new boolean[width];
+        for (int y = 0; y < expectedImage.getHeight(); y++) {
+            Arrays.fill(inRegion, false);
+            for (Rectangle region : regions) {
+                if (y >= region.y && y < region.y + region.height) {
+                    Arrays.fill(inRegion, region.x, region.x + region.width, true);
+                }
+            }
+            if (direct) {
+                final int lineOffset = y * width;
+                for (int x = 0; x < width; x++) {
+                    if (!inRegion[x]) {
+                        actualPixels[x + lineOffset] = expectedPixels[x + lineOffset];
+                    }
+                }
+            } else {
+                // gray and binary images are copied through their rasters, run by run
+                for (int x = 0; x < width; x++) {
+                    if (!inRegion[x]) {
+                        final int runStart = x;
+                        while (x < width && !inRegion[x]) {
+                            x++;
+                        }
+                        actualRaster.setDataElements(runStart, y, x - runStart, 1,
+                                expectedRaster.getDataElements(runStart, y, x - runStart, 1, null));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Identical pages are only reported as equal without rendering them, when no images of equal pages are needed for the result.
+     */
+    private boolean skipsIdenticalPages() {
+        return environment.skipIdenticalPages() && !needsImagesOfEqualPages();
+    }
+
+    /**
+     * Pages, that are excluded as a whole, are faded out completely, so they are only rendered to find differences in the exclusion.
+     * They are reported as equal without rendering them, when no images of equal pages are needed for the result.
+     * Differences on such pages are then not found, so they do not show up in {@link CompareResult#hasDifferenceInExclusion()}.
+     */
+    private boolean skipsExcludedPage(final int pageIndex) {
+        return !needsImagesOfEqualPages() && getExclusions().forPage(pageIndex + 1).excludesWholePage();
+    }
+
+    private boolean needsImagesOfEqualPages() {
+        return compareResult.needsImagesOfAllPages() || !environment.verdictOnly() && environment.addEqualPagesToResult();
+    }
+    /**
+     * Compares the bytes of both inputs, before the documents are parsed. The opened inputs are used to load the documents,
+     * when they differ, so inputs, that can only be read once, are still available. Of identical inputs, only the expected
+     * input stays open, to load it once. A missing input is not opened, so it is reported, when the documents are loaded.
+     * When a render cache is used, the inputs are compared by their hashes, which are needed for the render cache anyway.
+     * Inputs with different passwords are not compared, because each password has to be checked.
+     */
+    private boolean haveIdenticalContent() throws IOException {
+        if (!Objects.equals(expectedPassword, actualPassword)) {
+            return false;
+        }
+        final RandomAccessRead expectedStream;
+        try {
+            expectedStream = expectedStreamSupplier.get();
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        expectedStreamSupplier = opened(expectedStream);
+        final RandomAccessRead actualStream;
+        try {
+            actualStream = actualStreamSupplier.get();
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            expectedStream.close();
+            throw e;
+        }
+        actualStreamSupplier = opened(actualStream);
+        boolean identical = false;
+        try {
+            if (usesRenderCache()) {
+                expectedInputHash = RenderCache.documentHash(expectedStream);
+                actualInputHash = RenderCache.documentHash(actualStream);
+                identical = expectedInputHash.equals(actualInputHash);
+            } else {
+                identical = Utilities.sameContent(expectedStream, actualStream);
+            }
+            return identical;
+        } catch (IOException | RuntimeException | Error e) {
+            try {
+                expectedStream.close();
+            } finally {
+                actualStream.close();
+            }
+            throw e;
+        } finally {
+            if (identical) {
+                actualStream.close();
+            }
+        }
+    }
+
+    private boolean usesRenderCache() {
+        return sharedEngine != null ? sharedEngine.getRenderCache() != null : environment.getRenderCacheDirectory() != null;
+    }
+
+    /**
+     * Reads the page count of the expected document of identical inputs, so a wrong password or a broken document is still
+     * reported, and adds all its pages as equal without rendering them. The page tree is not walked and the input is closed,
+     * before the pages are added, so it is not held in memory, while the result is built.
+     */
+    private void addIdenticalDocument() throws IOException {
+        final long loadStart = System.nanoTime();
+        final int pageCount;
+        try (RandomAccessRead stream = expectedStreamSupplier.get();
+             PDDocument document = Loader.loadPDF(stream, expectedPassword, Utilities.getMemorySettings(environment.getDocumentCacheSize()))) {
+            pageCount = document.getNumberOfPages();
+        }
+        documentsLoaded(loadStart);
+        for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+            compareResult.addPage(new PageDiffCalculator(0, 0), pageIndex);
+        }
+    }
+
+    private static RandomAccessReadSupplier opened(final RandomAccessRead stream) {
+        return () -> {
+            stream.seek(0);
+            return stream;
+        };
+    }
+
+    /**
+     * Finds the pages, that have the same fingerprint in both documents. Those are equal without rendering them,
+     * but only, when no images of equal pages are needed for the result.
+     */
+    private BitSet identicalPages(final PDDocument expectedDocument, final PDDocument actualDocument, final int pageCount) {
+        final BitSet identicalPages = new BitSet(pageCount);
+        if (!skipsIdenticalPages()) {
+            return identicalPages;
+        }
+        final PageFingerprint expectedFingerprint = new PageFingerprint(expectedDocument);
+        final PageFingerprint actualFingerprint = new PageFingerprint(actualDocument);
+        for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+            if (skipsExcludedPage(pageIndex)) {
+                continue;
+            }
+            try {
+                if (Arrays.equals(expectedFingerprint.of(expectedDocument.getPage(pageIndex)),
+                        actualFingerprint.of(actualDocument.getPage(pageIndex)))) {
+                    identicalPages.set(pageIndex);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.debug("Could not calculate the fingerprint of page {}, so it is rendered", pageIndex + 1, e);
+            }
+        }
+        LOG.debug("{} of {} pages are identical in both documents", identicalPages.cardinality(), pageCount);
+        return identicalPages;
+    }
+
+    /**
+     * Additional pages are only in one document, so there is always a difference in an exclusion, that covers them.
+     */
+    private static PageDiffCalculator excludedPageDiffCalculator(final int pageIndex) {
+        final PageDiffCalculator diffCalculator = new PageDiffCalculator(0, 0);
+        diffCalculator.diffFoundInExclusion();
+        diffCalculator.addDiffArea(new PageArea(pageIndex + 1));
+        return diffCalculator;
+    }
+
     private static ImageWithDimension blank(final ImageWithDimension image) {
         return new ImageWithDimension(
                 new BufferedImage(image.bufferedImage.getWidth(), image.bufferedImage.getHeight(), image.bufferedImage.getType()),
                 image.width, image.height);
     }
 
-    public static ImageWithDimension renderPageAsImage(final PDDocument document, final PDFRenderer expectedPdfRenderer, final int pageIndex,
-            Environment environment) throws IOException {
-        final BufferedImage bufferedImage = expectedPdfRenderer.renderImageWithDPI(pageIndex, environment.getDPI());
+    /**
+     * PdfBox does not support to use a document in several threads at the same time, so a document is locked, while it is rendered
+     * or its pages are read. A ReentrantLock is used instead of a monitor, so virtual threads waiting for a document
+     * do not pin their carrier thread.
+     */
+    private Lock documentLock(final PDDocument document) {
+        return documentLocks.computeIfAbsent(document, d -> new ReentrantLock());
+    }
+
+    /**
+     * Locks both documents, always the expected document first, so locking them never deadlocks.
+     */
+    private void lockDocuments(final PDDocument expectedDocument, final PDDocument actualDocument) {
+        documentLock(expectedDocument).lock();
+        documentLock(actualDocument).lock();
+    }
+
+    private void unlockDocuments(final PDDocument expectedDocument, final PDDocument actualDocument) {
+        documentLock(actualDocument).unlock();
+        documentLock(expectedDocument).unlock();
+    }
+
+    /**
+     * PdfBox does not support to render several pages of the same document at the same time,
+     * so only the pages of different documents are rendered in parallel.
+     * When the document has a hash, the page is taken from the render cache, if it was rendered before.
+     * When regions are given, only those are rendered. Such partially rendered pages are never cached.
+     */
+    private ImageWithDimension renderPage(final PDDocument document, final PDFRenderer pdfRenderer, final int pageIndex,
+            final String documentHash, final List<Rectangle> regions) throws IOException {
+        final Lock lock = documentLock(document);
+        lock.lock();
+        try {
+            if (regions != null) {
+                return renderPageAsImage(document, pdfRenderer, pageIndex, environment, rasterPool, regions);
+            }
+            if (documentHash == null) {
+                return renderPageAsImage(document, pdfRenderer, pageIndex, environment, rasterPool);
+            }
+            final BufferedImage cachedImage = renderCache.get(documentHash, pageIndex, environment.getDPI(), environment.getRenderImageType(),
+                    rasterPool);
+            if (cachedImage != null) {
+                return withPageDimension(cachedImage, document.getPage(pageIndex));
+            }
+            final ImageWithDimension image = renderPageAsImage(document, pdfRenderer, pageIndex, environment, rasterPool);
+            renderCache.put(documentHash, pageIndex, environment.getDPI(), environment.getRenderImageType(), image.bufferedImage);
+            return image;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Renders a page into an image from the pool, like {@link PDFRenderer#renderImageWithDPI(int, float)} renders into a new image.
+     * Pages with blend modes are rendered by PdfBox into a transparent image first, so they are not rendered into pooled images.
+     */
+    /*package*/ static ImageWithDimension renderPageAsImage(final PDDocument document, final PDFRenderer pdfRenderer, final int pageIndex,
+            final Environment environment, final RasterPool rasterPool) throws IOException {
+        return renderPageAsImage(document, pdfRenderer, pageIndex, environment, rasterPool, null);
+    }
+
+    /**
+     * Renders only the given regions of a page into an image from the pool. The rest of the image is white.
+     * Every region is rendered into a subimage through a translated Graphics2D, so the bounds of the subimage limit the rendering
+     * to the region. A clip would not do, because PdfBox replaces the clip with the clipping paths of the page.
+     * The pixels of the regions are the same as in a completely rendered page.
+     *
+     * @param regions the regions to render or null to render the whole page
+     */
+    /*package*/ static ImageWithDimension renderPageAsImage(final PDDocument document, final PDFRenderer pdfRenderer, final int pageIndex,
+            final Environment environment, final RasterPool rasterPool, final List<Rectangle> regions) throws IOException {
         final PDPage page = document.getPage(pageIndex);
-        final PDRectangle mediaBox = page.getMediaBox();
+        final float scale = environment.getDPI() / 72f;
+        final Dimension size = imageSize(page, scale);
+        if (size == null || hasBlendMode(page)) {
+            return renderPageAsImage(document, pdfRenderer, pageIndex, environment);
+        }
+        final BufferedImage image = rasterPool.borrow(size.width, size.height, environment.getRenderImageType().getBufferedImageType());
+        try {
+            if (regions == null) {
+                renderRegion(pageIndex, pdfRenderer, scale, image, new Rectangle(size));
+            } else {
+                clear(image, new Rectangle(size));
+                for (Rectangle region : regions) {
+                    renderRegion(pageIndex, pdfRenderer, scale, image.getSubimage(region.x, region.y, region.width, region.height), region);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            rasterPool.release(image);
+            throw e;
+        }
+        return withPageDimension(image, page);
+    }
+
+    private static void renderRegion(final int pageIndex, final PDFRenderer pdfRenderer, final float scale, final BufferedImage image,
+            final Rectangle region) throws IOException {
+        final Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, region.width, region.height);
+            graphics.translate(-region.x, -region.y);
+            pdfRenderer.renderPageToGraphics(pageIndex, graphics, scale, scale, RenderDestination.EXPORT);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private static void clear(final BufferedImage image, final Rectangle region) {
+        final Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(region.x, region.y, region.width, region.height);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Calculates the size of the image, that {@link PDFRenderer#renderImageWithDPI(int, float)} renders a page into.
+     *
+     * @return the size or null, when the image would be too large for a single int array
+     */
+    private static Dimension imageSize(final PDPage page, final float scale) {
+        final PDRectangle cropBox = page.getCropBox();
+        final int width = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+        final int height = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+        if ((long) width * height > Integer.MAX_VALUE) {
+            return null;
+        }
         if (page.getRotation() == 90 || page.getRotation() == 270) {
-            return new ImageWithDimension(bufferedImage, mediaBox.getHeight(), mediaBox.getWidth());
-        } else {
-            return new ImageWithDimension(bufferedImage, mediaBox.getWidth(), mediaBox.getHeight());
+            return new Dimension(height, width);
         }
+        return new Dimension(width, height);
+    }
+
+    private static boolean hasBlendMode(final PDPage page) {
+        final PDResources resources = page.getResources();
+        if (resources == null) {
+            return false;
+        }
+        for (COSName name : resources.getExtGStateNames()) {
+            final PDExtendedGraphicsState extGState = resources.getExtGState(name);
+            if (extGState != null && extGState.getBlendMode() != BlendMode.NORMAL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static ImageWithDimension renderPageAsImage(final PDDocument document, final PDFRenderer expectedPdfRenderer, final int pageIndex,
+            Environment environment) throws IOException {
+        final BufferedImage bufferedImage = expectedPdfRenderer.renderImageWithDPI(pageIndex, environment.getDPI(), imageType(environment));
+        return withPageDimension(bufferedImage, document.getPage(pageIndex));
+    }
+
+    private static ImageType imageType(final Environment environment) {
+        switch (environment.getRenderImageType()) {
+            case GRAY:
+                return ImageType.GRAY;
+            case BINARY:
+                return ImageType.BINARY;
+            default:
+                return ImageType.RGB;
+        }
+    }
+
+    private static float pageWidth(final PDPage page) {
+        final PDRectangle mediaBox = page.getMediaBox();
+        return page.getRotation() == 90 || page.getRotation() == 270 ? mediaBox.getHeight() : mediaBox.getWidth();
+    }
+
+    private static float pageHeight(final PDPage page) {
+        final PDRectangle mediaBox = page.getMediaBox();
+        return page.getRotation() == 90 || page.getRotation() == 270 ? mediaBox.getWidth() : mediaBox.getHeight();
+    }
+
+    private static ImageWithDimension withPageDimension(final BufferedImage bufferedImage, final PDPage page) {
+        return new ImageWithDimension(bufferedImage, pageWidth(page), pageHeight(page));
     }
 
     public T getResult() {
         return compareResult;
     }
 
+    /**
+     * Loads the document in the load executor of the engine, so the expected and the actual document are loaded in parallel.
+     * When the returned future is cancelled, while the document is loaded, the document is closed, as soon as it is loaded.
+     */
+    private Future<LoadedDocument> loadInBackground(final RandomAccessReadSupplier streamSupplier, final String password,
+            final PdfCompareEngine engine) {
+        final FutureTask<LoadedDocument> task = new FutureTask<LoadedDocument>(() -> load(streamSupplier, password)) {
+
+            @Override
+            protected void set(final LoadedDocument loadedDocument) {
+                super.set(loadedDocument);
+                if (isCancelled()) {
+                    try {
+                        loadedDocument.close();
+                    } catch (IOException e) {
+                        LOG.trace("Document, that is not compared, could not be closed", e);
+                    }
+                }
+            }
+        };
+        engine.getLoadExecutor().execute(task);
+        return task;
+    }
+
+    private LoadedDocument load(final RandomAccessReadSupplier streamSupplier, final String password) throws IOException {
+        final RandomAccessRead stream = streamSupplier.get();
+        try {
+            final PDDocument document = Loader.loadPDF(stream, password, Utilities.getMemorySettings(environment.getDocumentCacheSize()));
+            final LoadedDocument loadedDocument = new LoadedDocument(stream, document);
+            try {
+                // walk the page tree here, so it is resolved while the other document is loaded
+                document.getPages().forEach(page -> checkCancelled());
+            } catch (RuntimeException e) {
+                loadedDocument.close();
+                throw e;
+            }
+            return loadedDocument;
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    private static LoadedDocument getLoaded(final Future<LoadedDocument> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading a document");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Stops loading a document, that is not compared anymore. A document, that is already loaded, is closed.
+     */
+    private static void discard(final Future<LoadedDocument> future) {
+        if (!future.cancel(true)) {
+            closeWhenLoaded(future);
+        }
+    }
+
+    private static void closeWhenLoaded(final Future<LoadedDocument> future) {
+        try (LoadedDocument ignored = getLoaded(future)) {
+            LOG.trace("Closing document, that is not compared");
+        } catch (IOException | RuntimeException e) {
+            LOG.trace("Document, that is not compared, could not be loaded", e);
+        }
+    }
+
+    private void documentsLoaded(final long loadStart) {
+        final long loadTimeInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+        LOG.debug("Loaded documents in {} ms", loadTimeInMillis);
+        compareResult.setDocumentLoadTime(loadTimeInMillis);
+    }
+
+    private static class LoadedDocument implements Closeable {
+
+        private final RandomAccessRead stream;
+        private final PDDocument document;
+
+        private LoadedDocument(final RandomAccessRead stream, final PDDocument document) {
+            this.stream = stream;
+            this.document = document;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                document.close();
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Releases the input, when the document is read, so it can be garbage collected during the comparison.
+     */
+    private static <I> RandomAccessReadSupplier readOnce(final I input, final InputReader<I> reader) {
+        final AtomicReference<I> inputReference = new AtomicReference<>(input);
+        return () -> {
+            final I remainingInput = inputReference.getAndSet(null);
+            if (remainingInput == null) {
+                throw new IllegalStateException("The input was already read");
+            }
+            return reader.read(remainingInput);
+        };
+    }
+
+    /**
+     * Streams are copied into memory, because PdfBox needs random access to the document.
+     */
+    private static RandomAccessReadSupplier buffered(final InputStreamSupplier streamSupplier) {
+        return () -> {
+            try (final InputStream inputStream = streamSupplier.get()) {
+                return new RandomAccessReadBuffer(inputStream);
+            }
+        };
+    }
+
     @FunctionalInterface
     private interface InputStreamSupplier {
 
         InputStream get() throws IOException;
     }
+
+    @FunctionalInterface
+    private interface InputReader<I> {
+
+        RandomAccessRead read(I input) throws IOException;
+    }
+
+    /**
+     * Supplies the document to read. Files are read directly from disk, so they are not copied into the heap.
+     */
+    @FunctionalInterface
+    private interface RandomAccessReadSupplier {
+
+        RandomAccessRead get() throws IOException;
+    }
 }
@@ -0,0 +1,192 @@
+package de.redsix.pdfcompare;
+
+import static de.redsix.pdfcompare.Utilities.blockingExecutor;
+
+import de.redsix.pdfcompare.env.DefaultEnvironment;
+import de.redsix.pdfcompare.env.Environment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+/**
+ * A PdfCompareEngine owns the thread pools, that render and diff pages. It can be shared by many
+ * PdfComparators, also concurrently, so the threads are reused and the number of pages rendered and diffed
+ * at the same time is limited across all comparisons. So is the memory used by those pages.
+ * The sizes of the pools and the memory budget are taken from the given {@link Environment}.
+ *
+ * <pre>
+ * try (PdfCompareEngine engine = new PdfCompareEngine()) {
+ *     new PdfComparator("expected.pdf", "actual.pdf").withEngine(engine).compare();
+ * }
+ * </pre>
+ *
+ * When a PdfComparator is used without an engine, it creates its own engine for every comparison.
+ *
+ * @see PdfComparator#withEngine(PdfCompareEngine)
+ */
+public class PdfCompareEngine implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PdfCompareEngine.class);
+
+    private final Environment environment;
+    private final ExecutorService loadExecutor;
+    private final ExecutorService drawExecutor;
+    private final ExecutorService parallelDrawExecutor;
+    private final ExecutorService diffExecutor;
+    private final ForkJoinPool diffStripPool;
+    private final MemoryBudget memoryBudget;
+    private final RasterPool rasterPool;
+    private final RenderCache renderCache;
+    private volatile boolean closed = false;
+
+    public PdfCompareEngine() {
+        this(DefaultEnvironment.create());
+    }
+
+    public PdfCompareEngine(final Environment environment) {
+        this(environment, Runtime.getRuntime().availableProcessors());
+    }
+
+    private PdfCompareEngine(final Environment environment, final int defaultRenderThreads) {
+        Objects.requireNonNull(environment, "environment is null");
+        this.environment = environment;
+        // every page in drawing renders the expected and the actual page in parallel
+        final int renderThreads = Math.max(2, environment.getRenderThreads() > 0 ? environment.getRenderThreads() : defaultRenderThreads);
+        final int diffThreads = Math.max(1, environment.getDiffThreads());
+        final boolean virtualThreads = usesVirtualThreads(environment);
+        // one document of every comparison is loaded in the background, while the other is loaded in the comparing thread
+        loadExecutor = orPlatformThreads(virtualThreads ? VirtualThreads.executor("Load") : null,
+                () -> blockingExecutor("Load", Math.max(1, renderThreads / 2), Integer.MAX_VALUE, environment));
+        drawExecutor = orPlatformThreads(virtualThreads ? VirtualThreads.executor("Draw") : null,
+                () -> blockingExecutor("Draw", renderThreads / 2, Math.max(1, environment.getRenderQueueCapacity()), environment));
+        parallelDrawExecutor = orPlatformThreads(virtualThreads ? VirtualThreads.boundedExecutor("ParallelDraw", renderThreads) : null,
+                () -> blockingExecutor("ParallelDraw", renderThreads, renderThreads, environment));
+        diffExecutor = orPlatformThreads(virtualThreads ? VirtualThreads.boundedExecutor("Diff", diffThreads) : null,
+                () -> blockingExecutor("Diff", diffThreads, Math.max(1, environment.getDiffQueueCapacity()), environment));
+        diffStripPool = diffStripPool(environment);
+        memoryBudget = new MemoryBudget(environment.getPageMemoryBudget());
+        rasterPool = new RasterPool(2 * renderThreads, memoryBudget);
+        renderCache = renderCache(environment);
+    }
+
+    /**
+     * Large pages are diffed in strips in this pool. Its parallelism is the number of diff threads, so the strips of all pages,
+     * that are diffed at the same time, never use more threads than that.
+     *
+     * @return the pool or null, when pages are not processed in parallel
+     */
+    private static ForkJoinPool diffStripPool(final Environment environment) {
+        if (!environment.useParallelProcessing()) {
+            return null;
+        }
+        return new ForkJoinPool(Math.max(1, environment.getDiffThreads()), pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("DiffStrip-thread-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Creates the engine of a single comparison. As PdfBox renders only one page of a document at the same time,
+     * it renders with two threads, one for each document, unless the number of render threads is configured.
+     */
+    /*package*/ static PdfCompareEngine forSingleComparison(final Environment environment) {
+        return new PdfCompareEngine(environment, 2);
+    }
+
+    private static ExecutorService orPlatformThreads(final ExecutorService virtualExecutor, final Supplier<ExecutorService> platformExecutor) {
+        return virtualExecutor != null ? virtualExecutor : platformExecutor.get();
+    }
+
+    private static RenderCache renderCache(final Environment environment) {
+        if (environment.getRenderCacheDirectory() == null) {
+            return null;
+        }
+        try {
+            return new RenderCache(environment.getRenderCacheDirectory(), environment.getRenderCacheSize(), environment.cacheActualRenders());
+        } catch (IOException e) {
+            LOG.warn("Could not open the render cache at {}. Pages are rendered without it.", environment.getRenderCacheDirectory(), e);
+            return null;
+        }
+    }
+
+    /**
+     * With virtual threads, every page is scheduled in its own virtual thread right away, so it already waits for the rendering
+     * and every free render permit picks up the next page at once. The memory budget still limits the number of pages in drawing.
+     * The rendering and the diffing run on virtual threads as well, but only as many at the same time as there are
+     * render and diff threads.
+     */
+    private static boolean usesVirtualThreads(final Environment environment) {
+        if (!environment.useParallelProcessing() || !environment.useVirtualThreads()) {
+            return false;
+        }
+        if (!VirtualThreads.isAvailable()) {
+            LOG.warn("Virtual threads are not available in Java {}. Using platform threads instead.", System.getProperty("java.version"));
+            return false;
+        }
+        return true;
+    }
+
+    /*package*/ ExecutorService getLoadExecutor() {
+        return loadExecutor;
+    }
+
+    /*package*/ ExecutorService getDrawExecutor() {
+        return drawExecutor;
+    }
+
+    /*package*/ ExecutorService getParallelDrawExecutor() {
+        return parallelDrawExecutor;
+    }
+
+    /*package*/ ExecutorService getDiffExecutor() {
+        return diffExecutor;
+    }
+
+    /**
+     * @return the pool to diff the strips of large pages in or null, when pages are not processed in parallel
+     */
+    /*package*/ ForkJoinPool getDiffStripPool() {
+        return diffStripPool;
+    }
+
+    /*package*/ MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /*package*/ RasterPool getRasterPool() {
+        return rasterPool;
+    }
+
+    /**
+     * @return the render cache or null, when no render cache is configured
+     */
+    /*package*/ RenderCache getRenderCache() {
+        return renderCache;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Shuts down the thread pools. Pages, that are already scheduled, are still rendered and diffed,
+     * but no new comparisons can be started with this engine.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Utilities.shutdownAndAwaitTermination(loadExecutor, "Load", environment);
+        Utilities.shutdownAndAwaitTermination(drawExecutor, "Draw", environment);
+        Utilities.shutdownAndAwaitTermination(parallelDrawExecutor, "Parallel Draw", environment);
+        Utilities.shutdownAndAwaitTermination(diffExecutor, "Diff", environment);
+        Utilities.shutdownAndAwaitTermination(diffStripPool, "Diff Strip", environment);
+    }
+}
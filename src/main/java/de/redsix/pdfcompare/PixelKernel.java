@@ -0,0 +1,76 @@
+package de.redsix.pdfcompare;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The innermost loops of the diff, that compare and fade runs of pixels.
+ * On JDK 17 and later, a vectorized implementation with the incubating Vector API is used, when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}. It is part of the jar as a multi-release class. Otherwise these scalar loops are used.
+ */
+class PixelKernel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PixelKernel.class);
+    private static final String VECTOR_KERNEL = "de.redsix.pdfcompare.VectorPixelKernel";
+
+    static final PixelKernel INSTANCE = select();
+
+    /**
+     * @return the number of equal pixels before the first difference, which is length, when all pixels are equal
+     */
+    int mismatch(final int[] expected, final int expectedOffset, final int[] actual, final int actualOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (expected[i + expectedOffset] != actual[i + actualOffset]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Compares the bytes of lines of gray or binary images.
+     *
+     * @return the number of equal bytes before the first difference, which is length, when all bytes are equal
+     */
+    int mismatch(final byte[] expected, final int expectedOffset, final byte[] actual, final int actualOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (expected[i + expectedOffset] != actual[i + actualOffset]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Fades length pixels like {@link ImageTools#fadeElement(int)}. Pixels are mostly runs of the same color,
+     * like the white background, so the faded color is only calculated again, when the color changes.
+     */
+    void fade(final int[] pixels, final int offset, final int[] result, final int resultOffset, final int length) {
+        if (length <= 0) {
+            return;
+        }
+        int element = pixels[offset];
+        int faded = ImageTools.fadeElement(element);
+        for (int i = 0; i < length; i++) {
+            final int next = pixels[i + offset];
+            if (next != element) {
+                element = next;
+                faded = ImageTools.fadeElement(element);
+            }
+            result[i + resultOffset] = faded;
+        }
+    }
+
+    private static PixelKernel select() {
+        try {
+            final PixelKernel kernel = (PixelKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            // the classes of the Vector API are only linked, when they are used, so a missing module shows up here
+            kernel.mismatch(new int[1], 0, new int[1], 0, 1);
+            LOG.debug("Diffing with the vectorized pixel kernel");
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            LOG.debug("Diffing with the scalar pixel kernel, because the Vector API is not available: {}", e.toString());
+            return new PixelKernel();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package de.redsix.pdfcompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps images, that are no longer needed, so later pages of the same size can be rendered into them,
+ * instead of allocating new images. At most maxIdleImages images are kept.
+ * When the pool has a memory budget, the idle images are charged to it. Images, that do not fit into the budget,
+ * are not kept, and all idle images are dropped, when a page would otherwise have to wait for memory.
+ */
+class RasterPool {
+
+    private final int maxIdleImages;
+    private final MemoryBudget memoryBudget;
+    private final Map<List<Integer>, Deque<BufferedImage>> idleImages = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    RasterPool(final int maxIdleImages) {
+        this(maxIdleImages, null);
+    }
+
+    RasterPool(final int maxIdleImages, final MemoryBudget memoryBudget) {
+        this.maxIdleImages = maxIdleImages;
+        this.memoryBudget = memoryBudget;
+        if (memoryBudget != null) {
+            memoryBudget.setIdleReclaimer(this::clear);
+        }
+    }
+
+    /**
+     * Gives an image of the given size and type. The content of the image is undefined.
+     */
+    BufferedImage borrow(final int width, final int height, final int imageType) {
+        final Deque<BufferedImage> images = idleImages.get(key(width, height, imageType));
+        final BufferedImage image = images != null ? images.pollFirst() : null;
+        if (image == null) {
+            return new BufferedImage(width, height, imageType);
+        }
+        removedIdle(image);
+        return image;
+    }
+
+    /**
+     * Returns an image to the pool. The image must not be used anymore by the caller.
+     */
+    void release(final BufferedImage image) {
+        if (image == null) {
+            return;
+        }
+        if (idleCount.incrementAndGet() > maxIdleImages) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        if (memoryBudget != null && !memoryBudget.acquireIdle(bytes(image))) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idleImages.computeIfAbsent(key(image.getWidth(), image.getHeight(), image.getType()), k -> new ConcurrentLinkedDeque<>())
+                .addFirst(image);
+    }
+
+    /**
+     * Drops all idle images.
+     */
+    void clear() {
+        for (Deque<BufferedImage> images : idleImages.values()) {
+            BufferedImage image;
+            while ((image = images.pollFirst()) != null) {
+                removedIdle(image);
+            }
+        }
+    }
+
+    int getIdleCount() {
+        return idleCount.get();
+    }
+
+    private void removedIdle(final BufferedImage image) {
+        idleCount.decrementAndGet();
+        if (memoryBudget != null) {
+            memoryBudget.releaseIdle(bytes(image));
+        }
+    }
+
+    private static long bytes(final BufferedImage image) {
+        final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+    }
+
+    private static List<Integer> key(final int width, final int height, final int imageType) {
+        return Arrays.asList(width, height, imageType);
+    }
+}
@@ -0,0 +1,273 @@
+package de.redsix.pdfcompare;
+
+import de.redsix.pdfcompare.env.RenderImageType;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.util.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores rendered pages compressed on disk, so pages of documents, that do not change between runs,
+ * like the expected documents of a regression test suite, are only rendered once.
+ * Pages are identified by the hash of the document content, the page index, the DPI and the render settings,
+ * which include the versions of PdfBox and of the Java runtime, as both may change the rendered pixels.
+ * When the cache grows beyond its size, the least recently used pages are removed.
+ * <p>
+ * The cache is only an optimization: pages, that can not be read from or written to the cache, are rendered as usual.
+ */
+class RenderCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenderCache.class);
+    private static final String SUFFIX = ".raster";
+    private static final int MAGIC = 0x50435243;
+    private static final int FORMAT_VERSION = 2;
+    // the output of PdfBox and of Java2D may change between versions, so both versions are part of the key
+    private static final String RENDER_SETTINGS = "EXPORT/PdfBox " + Version.getVersion()
+            + "/Java " + System.getProperty("java.version") + " " + System.getProperty("java.vendor") + "/" + FORMAT_VERSION;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long maxSize;
+    private final boolean cachesActual;
+    private final AtomicLong size;
+
+    RenderCache(final Path directory, final long maxSizeInBytes, final boolean cachesActual) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = maxSizeInBytes;
+        this.cachesActual = cachesActual;
+        this.size = new AtomicLong(entries().stream().mapToLong(e -> e.size).sum());
+    }
+
+    /**
+     * @return true, when pages of the actual document shall be cached, too
+     */
+    boolean cachesActual() {
+        return cachesActual;
+    }
+
+    /**
+     * Hashes the complete content of a document. The position of the given stream is kept.
+     */
+    static String documentHash(final RandomAccessRead document) throws IOException {
+        final MessageDigest digest = sha256();
+        final long position = document.getPosition();
+        try {
+            document.seek(0);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = document.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            document.seek(position);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Reads a page from the cache into an image borrowed from the given pool.
+     *
+     * @return the image or null, when the page is not cached
+     */
+    BufferedImage get(final String documentHash, final int pageIndex, final int dpi, final RenderImageType imageType,
+            final RasterPool rasterPool) {
+        final Path file = file(documentHash, pageIndex, dpi, imageType);
+        BufferedImage image = null;
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cached page");
+            }
+            final int width = in.readInt();
+            final int height = in.readInt();
+            image = rasterPool.borrow(width, height, imageType.getBufferedImageType());
+            final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+            if (dataBuffer instanceof DataBufferInt) {
+                readPixels(in, ((DataBufferInt) dataBuffer).getData());
+            } else {
+                in.readFully(((DataBufferByte) dataBuffer).getData());
+            }
+            if (in.read() >= 0) {
+                throw new IOException("The cached page is larger than expected");
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            LOG.trace("Read page {} from the render cache", pageIndex);
+            return image;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not read page {} from the render cache at {}. Rendering it instead.", pageIndex + 1, file, e);
+            rasterPool.release(image);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a rendered page to the cache. Only images of the type, that pages are rendered into with the given image type,
+     * are cached. Gray and binary images are stored with their bytes.
+     */
+    void put(final String documentHash, final int pageIndex, final int dpi, final RenderImageType imageType, final BufferedImage image) {
+        final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        if (image.getType() != imageType.getBufferedImageType() || image.getRaster().getParent() != null
+                || !(dataBuffer instanceof DataBufferInt || dataBuffer instanceof DataBufferByte) || dataBuffer.getNumBanks() != 1) {
+            return;
+        }
+        final Path file = file(documentHash, pageIndex, dpi, imageType);
+        Path tempFile = null;
+        try {
+            // written to a temporary file first, so concurrent readers never see a partially written page
+            tempFile = Files.createTempFile(directory, "page", ".tmp");
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DataOutputStream out = new DataOutputStream(
+                    new DeflaterOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE), deflater, BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(image.getWidth());
+                out.writeInt(image.getHeight());
+                if (dataBuffer instanceof DataBufferInt) {
+                    writePixels(out, ((DataBufferInt) dataBuffer).getData());
+                } else {
+                    out.write(((DataBufferByte) dataBuffer).getData());
+                }
+            } finally {
+                deflater.end();
+            }
+            final long fileSize = Files.size(tempFile);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+            if (size.addAndGet(fileSize) > maxSize) {
+                evict();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not write page {} to the render cache at {}", pageIndex + 1, file, e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    LOG.debug("Could not delete {}", tempFile, e);
+                }
+            }
+        }
+    }
+
+    long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Removes the least recently used pages, until the cache fits into its size again.
+     * The size is recalculated from the directory, as the cache may be shared with other processes.
+     */
+    private synchronized void evict() throws IOException {
+        final List<Entry> entries = entries();
+        entries.sort(Comparator.comparing(e -> e.lastModified));
+        long currentSize = entries.stream().mapToLong(e -> e.size).sum();
+        for (Entry entry : entries) {
+            if (currentSize <= maxSize) {
+                break;
+            }
+            Files.deleteIfExists(entry.file);
+            currentSize -= entry.size;
+            LOG.trace("Evicted {} from the render cache", entry.file);
+        }
+        size.set(currentSize);
+    }
+
+    private List<Entry> entries() throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    entries.add(new Entry(file, Files.size(file), Files.getLastModifiedTime(file)));
+                } catch (NoSuchFileException e) {
+                    // removed concurrently
+                }
+            }
+        }
+        return entries;
+    }
+
+    private Path file(final String documentHash, final int pageIndex, final int dpi, final RenderImageType imageType) {
+        final String key = documentHash + "/" + pageIndex + "/" + dpi + "/" + imageType + "/" + RENDER_SETTINGS;
+        return directory.resolve(toHex(sha256().digest(key.getBytes(StandardCharsets.UTF_8))) + SUFFIX);
+    }
+
+    private static void writePixels(final OutputStream out, final int[] pixels) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int offset = 0; offset < pixels.length; ) {
+            final int count = Math.min(BUFFER_SIZE / 4, pixels.length - offset);
+            buffer.clear();
+            buffer.asIntBuffer().put(pixels, offset, count);
+            out.write(buffer.array(), 0, count * 4);
+            offset += count;
+        }
+    }
+
+    private static void readPixels(final DataInputStream in, final int[] pixels) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int offset = 0; offset < pixels.length; ) {
+            final int count = Math.min(BUFFER_SIZE / 4, pixels.length - offset);
+            in.readFully(buffer.array(), 0, count * 4);
+            buffer.clear();
+            buffer.asIntBuffer().get(pixels, offset, count);
+            offset += count;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static class Entry {
+
+        private final Path file;
+        private final long size;
+        private final FileTime lastModified;
+
+        private Entry(final Path file, final long size, final FileTime lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
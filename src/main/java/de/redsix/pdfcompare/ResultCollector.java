@@ -5,6 +5,18 @@ public interface ResultCollector {
     void addPage(PageDiffCalculator diffCalculator, int pageIndex,
             ImageWithDimension expectedImage, ImageWithDimension actualImage, ImageWithDimension diffImage);
 
+    /**
+     * Adds the verdict for a page, that was compared without creating any images. This happens in verdict-only mode
+     * and for pages, that are known to be equal without rendering them.
+     * By default, the verdict is added like any other page, but without images.
+     *
+     * @param diffCalculator the differences found on the page
+     * @param pageIndex      the index of the page starting with 0
+     */
+    default void addPage(PageDiffCalculator diffCalculator, int pageIndex) {
+        addPage(diffCalculator, pageIndex, null, null, null);
+    }
+
     void noPagesFound();
 
     default void done() {}
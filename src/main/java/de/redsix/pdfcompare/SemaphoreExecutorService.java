@@ -0,0 +1,72 @@
+package de.redsix.pdfcompare;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands every task to a delegate, that starts a new thread for it, but lets only a limited number of
+ * tasks run at the same time. The other tasks wait on a semaphore in their own thread.
+ * This is meant for cheap threads, like virtual threads, where a waiting thread does not block a platform thread.
+ * <p>
+ * Every task is run, even when its thread is interrupted, while it waits for the semaphore. It runs without a permit then
+ * and with the interrupt flag set, so the task can stop early, but still releases, what the caller registered for it.
+ */
+class SemaphoreExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+
+    SemaphoreExecutorService(final ExecutorService delegate, final int maxConcurrentTasks) {
+        Objects.requireNonNull(delegate, "delegate is null");
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrentTasks, true);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        Objects.requireNonNull(command, "command is null");
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                command.run();
+                return;
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,50 @@
+package de.redsix.pdfcompare;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A task, that is registered with a Phaser from its creation until its callable does not run anymore.
+ * Unlike {@link #isDone()}, which is true as soon as the task is cancelled, a cancelled task, that is still running,
+ * stays registered until the callable returns. A task, that is cancelled before it runs, is deregistered right away.
+ */
+class TrackedTask<V> extends FutureTask<V> {
+
+    private final Phaser phaser;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private volatile boolean started = false;
+
+    TrackedTask(final Callable<V> callable, final Phaser phaser) {
+        super(callable);
+        this.phaser = phaser;
+        phaser.register();
+    }
+
+    @Override
+    public void run() {
+        started = true;
+        try {
+            super.run();
+        } finally {
+            finish();
+        }
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled() && !started) {
+            finish();
+        }
+    }
+
+    /**
+     * Deregisters the task. This is also used, when the task is never run, because the executor rejected it.
+     */
+    void finish() {
+        if (finished.compareAndSet(false, true)) {
+            phaser.arriveAndDeregister();
+        }
+    }
+}
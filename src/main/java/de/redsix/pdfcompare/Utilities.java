@@ -3,6 +3,7 @@ package de.redsix.pdfcompare;
 import de.redsix.pdfcompare.env.Environment;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -14,6 +15,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -31,18 +33,24 @@ public class Utilities {
         private final ThreadGroup group;
         private final AtomicInteger threadNumber = new AtomicInteger(1);
         private final String namePrefix;
+        private final boolean daemon;
 
         NamedThreadFactory(final String name) {
+            this(name, false);
+        }
+
+        NamedThreadFactory(final String name, final boolean daemon) {
             SecurityManager s = System.getSecurityManager();
             group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
             namePrefix = name + "-" + poolNumber.getAndIncrement() + "-thread-";
+            this.daemon = daemon;
         }
 
         @Override
         public Thread newThread(Runnable r) {
             Thread t = new Thread(group, r, namePrefix + threadNumber.getAndIncrement());
-            if (t.isDaemon()) {
-                t.setDaemon(false);
+            if (t.isDaemon() != daemon) {
+                t.setDaemon(daemon);
             }
             if (t.getPriority() != Thread.NORM_PRIORITY) {
                 t.setPriority(Thread.NORM_PRIORITY);
@@ -62,8 +70,10 @@ public class Utilities {
 
     public static ExecutorService blockingExecutor(final String name, int threads, int queueCapacity, Environment environment) {
         if (environment.useParallelProcessing()) {
-            return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MINUTES,
-                    new LinkedBlockingQueue<>(queueCapacity), new NamedThreadFactory(name), new BlockingHandler());
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, Math.max(1, environment.getExecutorKeepAlive()),
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity), new NamedThreadFactory(name), new BlockingHandler());
+            executor.allowCoreThreadTimeOut(environment.getExecutorKeepAlive() > 0);
+            return executor;
         } else {
             return new InThreadExecutorService();
         }
@@ -101,6 +111,22 @@ public class Utilities {
         }
     }
 
+    /**
+     * Arrives at the phaser and waits for all other registered parties to arrive.
+     */
+    static void await(final Phaser phaser, final String phaserName, Environment environment) {
+        final int timeout = environment.getOverallTimeout();
+        final TimeUnit unit = TimeUnit.MINUTES;
+        try {
+            phaser.awaitAdvanceInterruptibly(phaser.arrive(), timeout, unit);
+        } catch (TimeoutException e) {
+            LOG.error("Awaiting Phaser '{}' timed out after {} {}", phaserName, timeout, unit);
+        } catch (InterruptedException e) {
+            LOG.warn("Awaiting Phaser '{}' was interrupted", phaserName);
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public static int getNumberOfPages(final Path document, Environment environment) throws IOException {
         try (InputStream documentIS = Files.newInputStream(document)) {
             return getNumberOfPages(documentIS, environment);
@@ -129,4 +155,38 @@ public class Utilities {
             return PdfComparator.renderPageAsImage(pdDocument, pdfRenderer, page, environment);
         }
     }
+
+    /**
+     * Compares two documents byte by byte. Documents of different length are not read at all.
+     * Both documents are read from the start and their positions are left at the end.
+     */
+    static boolean sameContent(final RandomAccessRead expected, final RandomAccessRead actual) throws IOException {
+        if (expected.length() != actual.length()) {
+            return false;
+        }
+        expected.seek(0);
+        actual.seek(0);
+        final byte[] expectedBuffer = new byte[64 * 1024];
+        final byte[] actualBuffer = new byte[expectedBuffer.length];
+        int read;
+        while ((read = readFully(expected, expectedBuffer)) > 0) {
+            // after a short read, the rest of both buffers still holds the equal bytes of the previous read
+            if (readFully(actual, actualBuffer) != read || !Arrays.equals(expectedBuffer, actualBuffer)) {
+                return false;
+            }
+        }
+        return readFully(actual, actualBuffer) == 0;
+    }
+
+    private static int readFully(final RandomAccessRead document, final byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            final int read = document.read(buffer, offset, buffer.length - offset);
+            if (read <= 0) {
+                break;
+            }
+            offset += read;
+        }
+        return offset;
+    }
 }
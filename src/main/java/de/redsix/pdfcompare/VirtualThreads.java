@@ -0,0 +1,64 @@
+package de.redsix.pdfcompare;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads, which are available since Java 21. They are looked up via reflection,
+ * so PdfCompare still runs on Java 8.
+ */
+final class VirtualThreads {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final Method OF_VIRTUAL = lookup();
+
+    private VirtualThreads() {}
+
+    private static Method lookup() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates an executor, that runs every task in a new virtual thread.
+     *
+     * @return the executor or null, when virtual threads are not available
+     */
+    static ExecutorService executor(final String name) {
+        if (!isAvailable()) {
+            return null;
+        }
+        try {
+            final Object builder = OF_VIRTUAL.invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-virtual-", 1L);
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads could not be created. Using platform threads instead.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates an executor, that runs every task in a new virtual thread, of which at most maxConcurrentTasks run at the same time.
+     *
+     * @return the executor or null, when virtual threads are not available
+     */
+    static ExecutorService boundedExecutor(final String name, final int maxConcurrentTasks) {
+        final ExecutorService executor = executor(name);
+        return executor != null ? new SemaphoreExecutorService(executor, maxConcurrentTasks) : null;
+    }
+}
@@ -26,6 +26,7 @@ public class CliArguments {
     private static final String HELP_OPTION = "h";
     private static final String EXPECTED_PASSWORD_OPTION = "exppwd";
     private static final String ACTUAL_PASSWORD_OPTION = "actpwd";
+    private static final String FAIL_FAST_OPTION = "ff";
 
     private final Options options;
     private CommandLine commandLine;
@@ -80,6 +81,14 @@ public class CliArguments {
                 .type(String.class)
                 .valueSeparator('=')
                 .build());
+        options.addOption(Option.builder(FAIL_FAST_OPTION)
+                .argName("fail-fast")
+                .desc("Stop the comparison at the first page with a difference")
+                .hasArg(false)
+                .longOpt("fail-fast")
+                .numberOfArgs(0)
+                .required(false)
+                .build());
         process(args);
     }
 
@@ -115,6 +124,10 @@ public class CliArguments {
         return Optional.ofNullable(commandLine.getOptionValue(ACTUAL_PASSWORD_OPTION));
     }
 
+    public boolean isFailFast() {
+        return commandLine.hasOption(FAIL_FAST_OPTION);
+    }
+
     /*package*/ int printHelp() {
         new HelpFormatter().printHelp("java -jar pdfcompare-x.x.x-full.jar [EXPECTED] [ACTUAL]\n" +
                 "\n" +
@@ -143,6 +156,9 @@ public class CliArguments {
             getExclusionsFile().ifPresent(pdfComparator::withIgnore);
             getExpectedPassword().ifPresent(pdfComparator::withExpectedPassword);
             getActualPassword().ifPresent(pdfComparator::withActualPassword);
+            if (isFailFast()) {
+                pdfComparator.withFailFast();
+            }
             CompareResult compareResult = pdfComparator.compare();
             getOutputFile().ifPresent(compareResult::writeTo);
             return (compareResult.isEqual()) ? EQUAL_DOCUMENTS_RESULT_VALUE : UNEQUAL_DOCUMENTS_RESULT_VALUE;
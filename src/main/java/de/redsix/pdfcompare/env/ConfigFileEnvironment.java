@@ -88,6 +88,14 @@ public class ConfigFileEnvironment implements Environment {
         return config.getInt("maxImageSizeInCache");
     }
 
+    @Override
+    public long getPageMemoryBudget() {
+        if (config.hasPath("pageMemoryBudgetMB")) {
+            return config.getLong("pageMemoryBudgetMB") * 1024 * 1024;
+        }
+        return Environment.super.getPageMemoryBudget();
+    }
+
     @Override
     public int getOverallTimeout() {
         return config.getInt("overallTimeoutInMinutes");
@@ -101,11 +109,67 @@ public class ConfigFileEnvironment implements Environment {
         return 60;
     }
 
+    @Override
+    public int getPageTimeout() {
+        if (config.hasPath("pageTimeoutInSeconds")) {
+            return config.getInt("pageTimeoutInSeconds");
+        }
+        return Environment.super.getPageTimeout();
+    }
+
     @Override
     public boolean useParallelProcessing() {
         return config.getBoolean("parallelProcessing");
     }
 
+    @Override
+    public boolean useVirtualThreads() {
+        if (config.hasPath("virtualThreads")) {
+            return config.getBoolean("virtualThreads");
+        }
+        return Environment.super.useVirtualThreads();
+    }
+
+    @Override
+    public int getRenderThreads() {
+        if (config.hasPath("renderThreads")) {
+            return config.getInt("renderThreads");
+        }
+        return Environment.super.getRenderThreads();
+    }
+
+    @Override
+    public int getDiffThreads() {
+        if (config.hasPath("diffThreads")) {
+            return config.getInt("diffThreads");
+        }
+        return Environment.super.getDiffThreads();
+    }
+
+    @Override
+    public int getRenderQueueCapacity() {
+        if (config.hasPath("renderQueueCapacity")) {
+            return config.getInt("renderQueueCapacity");
+        }
+        return Environment.super.getRenderQueueCapacity();
+    }
+
+    @Override
+    public int getDiffQueueCapacity() {
+        if (config.hasPath("diffQueueCapacity")) {
+            return config.getInt("diffQueueCapacity");
+        }
+        return Environment.super.getDiffQueueCapacity();
+    }
+
+    @Override
+    public int getExecutorKeepAlive() {
+        if (config.hasPath("executorKeepAliveInSeconds")) {
+            return config.getInt("executorKeepAliveInSeconds");
+        }
+        return Environment.super.getExecutorKeepAlive();
+    }
+
     @Override
     public double getAllowedDiffInPercent() {
         return config.getDouble("allowedDifferenceInPercentPerPage");
@@ -142,6 +206,94 @@ public class ConfigFileEnvironment implements Environment {
         return config.getBoolean("failOnMissingIgnoreFile");
     }
 
+    @Override
+    public boolean verdictOnly() {
+        if (config.hasPath("verdictOnly")) {
+            return config.getBoolean("verdictOnly");
+        }
+        return Environment.super.verdictOnly();
+    }
+
+    @Override
+    public boolean failFast() {
+        if (config.hasPath("failFast")) {
+            return config.getBoolean("failFast");
+        }
+        return Environment.super.failFast();
+    }
+
+    @Override
+    public boolean skipIdenticalPages() {
+        if (config.hasPath("skipIdenticalPages")) {
+            return config.getBoolean("skipIdenticalPages");
+        }
+        return Environment.super.skipIdenticalPages();
+    }
+
+    @Override
+    public int getCoarseDPI() {
+        if (config.hasPath("coarseDPI")) {
+            return config.getInt("coarseDPI");
+        }
+        return Environment.super.getCoarseDPI();
+    }
+
+    @Override
+    public boolean verifyCoarselyEqualPages() {
+        if (config.hasPath("verifyCoarselyEqualPages")) {
+            return config.getBoolean("verifyCoarselyEqualPages");
+        }
+        return Environment.super.verifyCoarselyEqualPages();
+    }
+
+    @Override
+    public Path getRenderCacheDirectory() {
+        if (config.hasPath("renderCacheDir")) {
+            return Paths.get(config.getString("renderCacheDir"));
+        }
+        return Environment.super.getRenderCacheDirectory();
+    }
+
+    @Override
+    public long getRenderCacheSize() {
+        if (config.hasPath("renderCacheSizeMB")) {
+            return config.getLong("renderCacheSizeMB") * 1024 * 1024;
+        }
+        return Environment.super.getRenderCacheSize();
+    }
+
+    @Override
+    public boolean cacheActualRenders() {
+        if (config.hasPath("renderCacheForActual")) {
+            return config.getBoolean("renderCacheForActual");
+        }
+        return Environment.super.cacheActualRenders();
+    }
+
+    @Override
+    public int getTiledRenderingThreshold() {
+        if (config.hasPath("tiledRenderingThresholdMP")) {
+            return config.getInt("tiledRenderingThresholdMP");
+        }
+        return Environment.super.getTiledRenderingThreshold();
+    }
+
+    @Override
+    public boolean reusePageImages() {
+        if (config.hasPath("reusePageImages")) {
+            return config.getBoolean("reusePageImages");
+        }
+        return Environment.super.reusePageImages();
+    }
+
+    @Override
+    public RenderImageType getRenderImageType() {
+        if (config.hasPath("renderImageType")) {
+            return config.getEnum(RenderImageType.class, "renderImageType");
+        }
+        return Environment.super.getRenderImageType();
+    }
+
     private int getMB(final String path) {
         return config.getInt(path) * 1024 * 1024;
     }
@@ -3,6 +3,10 @@ package de.redsix.pdfcompare.env;
 import java.awt.*;
 import java.nio.file.Path;
 
+/**
+ * The settings of a comparison. The settings, that were added after the first releases, have default methods,
+ * which return the defaults of the reference.conf, so existing implementations keep compiling.
+ */
 public interface Environment {
 
     Path getTempDirectory();
@@ -17,12 +21,76 @@ public interface Environment {
 
     int getMaxImageSize();
 
+    /**
+     * Pages are only rendered, while the estimated memory of all pages in rendering and diffing fits into this budget.
+     *
+     * @return the memory budget in bytes for pages in rendering and diffing
+     */
+    default long getPageMemoryBudget() {
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+
     int getOverallTimeout();
 
     int getExecutorTimeout();
 
+    /**
+     * @return the time in seconds, that the rendering of a page may take
+     */
+    default int getPageTimeout() {
+        return 180;
+    }
+
     boolean useParallelProcessing();
 
+    /**
+     * Virtual threads are only available since Java 21. On older versions, platform threads are used.
+     *
+     * @return true, when the scheduling of pages and the waiting for rendered pages shall run on virtual threads
+     */
+    default boolean useVirtualThreads() {
+        return false;
+    }
+
+    /**
+     * PdfBox renders at most one page of a document at the same time, so a single comparison never renders
+     * more than one expected and one actual page at once. By default, a comparison renders with two threads therefore,
+     * and only a PdfCompareEngine, that is shared between comparisons, renders with as many threads as there are processors.
+     *
+     * @return the number of threads, that render pages concurrently, or 0 to use the default
+     */
+    default int getRenderThreads() {
+        return 0;
+    }
+
+    /**
+     * @return the number of threads, that diff rendered pages concurrently
+     */
+    default int getDiffThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    }
+
+    /**
+     * @return the number of pages, that may wait to be rendered, before adding further pages blocks
+     */
+    default int getRenderQueueCapacity() {
+        return 50;
+    }
+
+    /**
+     * @return the number of rendered pages, that may wait to be diffed, before rendering blocks
+     */
+    default int getDiffQueueCapacity() {
+        return 2;
+    }
+
+    /**
+     * @return the time in seconds after which idle executor threads are terminated
+     */
+    default int getExecutorKeepAlive() {
+        return 60;
+    }
+
     double getAllowedDiffInPercent();
 
     Color getExpectedColor();
@@ -34,4 +102,110 @@ public interface Environment {
     boolean addEqualPagesToResult();
 
     boolean failOnMissingIgnoreFile();
+
+    /**
+     * In verdict-only mode, pages are only checked for differences. No diff images are created and none are kept
+     * in the CompareResult, so the result can not be written.
+     *
+     * @return true, when no diff images shall be created
+     */
+    default boolean verdictOnly() {
+        return false;
+    }
+
+    /**
+     * In fail-fast mode, the comparison stops at the first page with a difference. Pages, that were not yet compared
+     * by then, are skipped and the CompareResult is marked as incomplete.
+     *
+     * @return true, when the comparison shall stop at the first difference
+     */
+    default boolean failFast() {
+        return false;
+    }
+
+    /**
+     * Pages, whose content and resources are identical in both documents, render to the same image.
+     * When no images of equal pages are needed for the result, those pages are reported as equal without rendering them.
+     *
+     * @return true, when identical pages shall not be rendered. False renders all pages.
+     */
+    default boolean skipIdenticalPages() {
+        return true;
+    }
+
+    /**
+     * In coarse-to-fine mode, pages are rendered and diffed at this low DPI first. Only pages, that differ at the low DPI,
+     * are rendered again at {@link #getDPI()} to find the exact differences. Like skipped identical pages, this is only done,
+     * when no images of equal pages are needed for the result.
+     *
+     * @return the DPI of the coarse comparison or 0, when all pages are only compared at the configured DPI
+     */
+    default int getCoarseDPI() {
+        return 0;
+    }
+
+    /**
+     * @return true, when pages, that are equal at the coarse DPI, shall still be compared at the configured DPI
+     */
+    default boolean verifyCoarselyEqualPages() {
+        return false;
+    }
+
+    /**
+     * Rendered pages are cached on disk in this directory, so pages of documents, that did not change, are not rendered again.
+     *
+     * @return the directory of the render cache or null, when pages shall not be cached
+     */
+    default Path getRenderCacheDirectory() {
+        return null;
+    }
+
+    /**
+     * @return the size in bytes, beyond which the least recently used pages are removed from the render cache
+     */
+    default long getRenderCacheSize() {
+        return 2048L * 1024 * 1024;
+    }
+
+    /**
+     * Pages of the expected document are always cached, when the render cache is enabled.
+     *
+     * @return true, when pages of the actual document shall be cached as well
+     */
+    default boolean cacheActualRenders() {
+        return false;
+    }
+
+    /**
+     * Pages, that are larger than this at the configured DPI, are rendered and diffed in bands of a few megapixels,
+     * so the expected and the actual page are never held in memory completely. Banding is off by default.
+     * Results, that need the complete images of the expected and the actual page, always get complete pages.
+     *
+     * @return the size in megapixels, from which pages are rendered in bands, or 0, when pages are always rendered completely
+     */
+    default int getTiledRenderingThreshold() {
+        return 0;
+    }
+
+    /**
+     * The expected and the actual image of a page are passed to the CompareResult. When they are reused afterwards,
+     * later pages are rendered into them, instead of allocating new images. This must only be enabled with CompareResults,
+     * that do not keep those images.
+     *
+     * @return true, when the images of a page may be reused for later pages, after they were added to the result
+     */
+    default boolean reusePageImages() {
+        return false;
+    }
+
+    /**
+     * Black and white documents can be rendered into gray or binary images, which need much less memory than RGB images.
+     * Differences are found between the rendered images, so a difference in color only, may not be found in gray,
+     * and light colors may not be visible at all in binary images.
+     *
+     * @return the kind of image, that pages are rendered into
+     */
+    default RenderImageType getRenderImageType() {
+        return RenderImageType.RGB;
+    }
 }
@@ -0,0 +1,33 @@
+package de.redsix.pdfcompare.env;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The kind of image, that pages are rendered into. Gray and binary images need a quarter or a 32nd of the memory
+ * of RGB images, which is enough for black and white documents. The diff image is always in color.
+ */
+public enum RenderImageType {
+
+    /** 4 bytes per pixel. */
+    RGB(BufferedImage.TYPE_INT_RGB, 32),
+    /** 1 byte per pixel, colors are converted to shades of gray. */
+    GRAY(BufferedImage.TYPE_BYTE_GRAY, 8),
+    /** 1 bit per pixel, every pixel is either black or white. Anti-aliased edges and light colors may get lost. */
+    BINARY(BufferedImage.TYPE_BYTE_BINARY, 1);
+
+    private final int bufferedImageType;
+    private final int bitsPerPixel;
+
+    RenderImageType(final int bufferedImageType, final int bitsPerPixel) {
+        this.bufferedImageType = bufferedImageType;
+        this.bitsPerPixel = bitsPerPixel;
+    }
+
+    public int getBufferedImageType() {
+        return bufferedImageType;
+    }
+
+    public int getBitsPerPixel() {
+        return bitsPerPixel;
+    }
+}
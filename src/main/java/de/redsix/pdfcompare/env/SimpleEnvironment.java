@@ -29,15 +29,34 @@ public class SimpleEnvironment implements Environment {
     private Integer swapCacheSize;
     private Integer documentCacheSize;
     private Integer maxImageSize;
+    private Long pageMemoryBudget;
     private Integer overallTimeout;
     private Integer executorTimeout;
+    private Integer pageTimeout;
     private Boolean parallelProcessing;
+    private Boolean virtualThreads;
+    private Integer renderThreads;
+    private Integer diffThreads;
+    private Integer renderQueueCapacity;
+    private Integer diffQueueCapacity;
+    private Integer executorKeepAlive;
     private Double allowedDiffInPercent;
     private Color expectedColor;
     private Color actualColor;
     private Integer dpi;
     private Boolean addEqualPagesToResult;
     private Boolean failOnMissingIgnoreFile;
+    private Boolean verdictOnly;
+    private Boolean failFast;
+    private Boolean skipIdenticalPages;
+    private Integer coarseDPI;
+    private Boolean verifyCoarselyEqualPages;
+    private Path renderCacheDirectory;
+    private Long renderCacheSize;
+    private Boolean cacheActualRenders;
+    private Integer tiledRenderingThreshold;
+    private Boolean reusePageImages;
+    private RenderImageType renderImageType;
 
     public SimpleEnvironment() {
         this(DefaultEnvironment.create());
@@ -108,6 +127,16 @@ public class SimpleEnvironment implements Environment {
         return this;
     }
 
+    @Override
+    public long getPageMemoryBudget() {
+        return pageMemoryBudget != null ? pageMemoryBudget : fallback.getPageMemoryBudget();
+    }
+
+    public SimpleEnvironment setPageMemoryBudget(long pageMemoryBudgetInBytes) {
+        this.pageMemoryBudget = pageMemoryBudgetInBytes;
+        return this;
+    }
+
     @Override
     public int getOverallTimeout() {
         return overallTimeout != null ? overallTimeout : fallback.getOverallTimeout();
@@ -128,6 +157,16 @@ public class SimpleEnvironment implements Environment {
         return this;
     }
 
+    @Override
+    public int getPageTimeout() {
+        return pageTimeout != null ? pageTimeout : fallback.getPageTimeout();
+    }
+
+    public SimpleEnvironment setPageTimeout(int pageTimeoutInSeconds) {
+        this.pageTimeout = pageTimeoutInSeconds;
+        return this;
+    }
+
     @Override
     public boolean useParallelProcessing() {
         return parallelProcessing != null ? parallelProcessing : fallback.useParallelProcessing();
@@ -138,6 +177,66 @@ public class SimpleEnvironment implements Environment {
         return this;
     }
 
+    @Override
+    public boolean useVirtualThreads() {
+        return virtualThreads != null ? virtualThreads : fallback.useVirtualThreads();
+    }
+
+    public SimpleEnvironment setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    @Override
+    public int getRenderThreads() {
+        return renderThreads != null ? renderThreads : fallback.getRenderThreads();
+    }
+
+    public SimpleEnvironment setRenderThreads(int renderThreads) {
+        this.renderThreads = renderThreads;
+        return this;
+    }
+
+    @Override
+    public int getDiffThreads() {
+        return diffThreads != null ? diffThreads : fallback.getDiffThreads();
+    }
+
+    public SimpleEnvironment setDiffThreads(int diffThreads) {
+        this.diffThreads = diffThreads;
+        return this;
+    }
+
+    @Override
+    public int getRenderQueueCapacity() {
+        return renderQueueCapacity != null ? renderQueueCapacity : fallback.getRenderQueueCapacity();
+    }
+
+    public SimpleEnvironment setRenderQueueCapacity(int renderQueueCapacity) {
+        this.renderQueueCapacity = renderQueueCapacity;
+        return this;
+    }
+
+    @Override
+    public int getDiffQueueCapacity() {
+        return diffQueueCapacity != null ? diffQueueCapacity : fallback.getDiffQueueCapacity();
+    }
+
+    public SimpleEnvironment setDiffQueueCapacity(int diffQueueCapacity) {
+        this.diffQueueCapacity = diffQueueCapacity;
+        return this;
+    }
+
+    @Override
+    public int getExecutorKeepAlive() {
+        return executorKeepAlive != null ? executorKeepAlive : fallback.getExecutorKeepAlive();
+    }
+
+    public SimpleEnvironment setExecutorKeepAlive(int executorKeepAliveInSeconds) {
+        this.executorKeepAlive = executorKeepAliveInSeconds;
+        return this;
+    }
+
     @Override
     public double getAllowedDiffInPercent() {
         return allowedDiffInPercent != null ? allowedDiffInPercent : fallback.getAllowedDiffInPercent();
@@ -197,4 +296,114 @@ public class SimpleEnvironment implements Environment {
         this.failOnMissingIgnoreFile = b;
         return this;
     }
+
+    @Override
+    public boolean verdictOnly() {
+        return verdictOnly != null ? verdictOnly : fallback.verdictOnly();
+    }
+
+    public SimpleEnvironment setVerdictOnly(final boolean b) {
+        this.verdictOnly = b;
+        return this;
+    }
+
+    @Override
+    public boolean failFast() {
+        return failFast != null ? failFast : fallback.failFast();
+    }
+
+    public SimpleEnvironment setFailFast(final boolean b) {
+        this.failFast = b;
+        return this;
+    }
+
+    @Override
+    public boolean skipIdenticalPages() {
+        return skipIdenticalPages != null ? skipIdenticalPages : fallback.skipIdenticalPages();
+    }
+
+    public SimpleEnvironment setSkipIdenticalPages(final boolean b) {
+        this.skipIdenticalPages = b;
+        return this;
+    }
+
+    @Override
+    public int getCoarseDPI() {
+        return coarseDPI != null ? coarseDPI : fallback.getCoarseDPI();
+    }
+
+    public SimpleEnvironment setCoarseDPI(final int coarseDPI) {
+        this.coarseDPI = coarseDPI;
+        return this;
+    }
+
+    @Override
+    public boolean verifyCoarselyEqualPages() {
+        return verifyCoarselyEqualPages != null ? verifyCoarselyEqualPages : fallback.verifyCoarselyEqualPages();
+    }
+
+    public SimpleEnvironment setVerifyCoarselyEqualPages(final boolean b) {
+        this.verifyCoarselyEqualPages = b;
+        return this;
+    }
+
+    @Override
+    public Path getRenderCacheDirectory() {
+        return renderCacheDirectory != null ? renderCacheDirectory : fallback.getRenderCacheDirectory();
+    }
+
+    public SimpleEnvironment setRenderCacheDirectory(final Path renderCacheDirectory) {
+        this.renderCacheDirectory = renderCacheDirectory;
+        return this;
+    }
+
+    @Override
+    public long getRenderCacheSize() {
+        return renderCacheSize != null ? renderCacheSize : fallback.getRenderCacheSize();
+    }
+
+    public SimpleEnvironment setRenderCacheSize(final long renderCacheSizeInBytes) {
+        this.renderCacheSize = renderCacheSizeInBytes;
+        return this;
+    }
+
+    @Override
+    public boolean cacheActualRenders() {
+        return cacheActualRenders != null ? cacheActualRenders : fallback.cacheActualRenders();
+    }
+
+    public SimpleEnvironment setCacheActualRenders(final boolean b) {
+        this.cacheActualRenders = b;
+        return this;
+    }
+
+    @Override
+    public int getTiledRenderingThreshold() {
+        return tiledRenderingThreshold != null ? tiledRenderingThreshold : fallback.getTiledRenderingThreshold();
+    }
+
+    public SimpleEnvironment setTiledRenderingThreshold(final int megaPixels) {
+        this.tiledRenderingThreshold = megaPixels;
+        return this;
+    }
+
+    @Override
+    public boolean reusePageImages() {
+        return reusePageImages != null ? reusePageImages : fallback.reusePageImages();
+    }
+
+    public SimpleEnvironment setReusePageImages(final boolean b) {
+        this.reusePageImages = b;
+        return this;
+    }
+
+    @Override
+    public RenderImageType getRenderImageType() {
+        return renderImageType != null ? renderImageType : fallback.getRenderImageType();
+    }
+
+    public SimpleEnvironment setRenderImageType(final RenderImageType renderImageType) {
+        this.renderImageType = renderImageType;
+        return this;
+    }
 }
@@ -0,0 +1,76 @@
+package de.redsix.pdfcompare;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Compares and fades as many pixels at once, as the preferred vector size of the CPU holds, e.g. 8 pixels with AVX2.
+ * The remaining pixels of a run are handled by the scalar loops.
+ * It is only loaded by {@link PixelKernel}, when the Vector API is available.
+ */
+final class VectorPixelKernel extends PixelKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int OPAQUE = 0xFF000000;
+
+    @Override
+    int mismatch(final int[] expected, final int expectedOffset, final int[] actual, final int actualOffset, final int length) {
+        final int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final IntVector expectedVector = IntVector.fromArray(SPECIES, expected, i + expectedOffset);
+            final IntVector actualVector = IntVector.fromArray(SPECIES, actual, i + actualOffset);
+            final VectorMask<Integer> differences = expectedVector.compare(VectorOperators.NE, actualVector);
+            if (differences.anyTrue()) {
+                return i + differences.firstTrue();
+            }
+        }
+        return i + super.mismatch(expected, i + expectedOffset, actual, i + actualOffset, length - i);
+    }
+
+    @Override
+    int mismatch(final byte[] expected, final int expectedOffset, final byte[] actual, final int actualOffset, final int length) {
+        final int bound = BYTE_SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += BYTE_SPECIES.length()) {
+            final ByteVector expectedVector = ByteVector.fromArray(BYTE_SPECIES, expected, i + expectedOffset);
+            final ByteVector actualVector = ByteVector.fromArray(BYTE_SPECIES, actual, i + actualOffset);
+            final VectorMask<Byte> differences = expectedVector.compare(VectorOperators.NE, actualVector);
+            if (differences.anyTrue()) {
+                return i + differences.firstTrue();
+            }
+        }
+        return i + super.mismatch(expected, i + expectedOffset, actual, i + actualOffset, length - i);
+    }
+
+    @Override
+    void fade(final int[] pixels, final int offset, final int[] result, final int resultOffset, final int length) {
+        final int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final IntVector vector = IntVector.fromArray(SPECIES, pixels, i + offset);
+            final IntVector red = fadeChannel(vector.lanewise(VectorOperators.LSHR, 16).and(0xFF));
+            final IntVector green = fadeChannel(vector.lanewise(VectorOperators.LSHR, 8).and(0xFF));
+            final IntVector blue = fadeChannel(vector.and(0xFF));
+            red.lanewise(VectorOperators.LSHL, 16)
+                    .or(green.lanewise(VectorOperators.LSHL, 8))
+                    .or(blue)
+                    .or(OPAQUE)
+                    .intoArray(result, i + resultOffset);
+        }
+        super.fade(pixels, i + offset, result, i + resultOffset, length - i);
+    }
+
+    /**
+     * Calculates c + (255 - c) * 3 / 5 like {@link ImageTools#fadeElement(int)}. The division by 5 is done as a multiplication
+     * with 205 / 1024, which gives the same result for all values up to 255 * 3.
+     */
+    private static IntVector fadeChannel(final IntVector channel) {
+        final IntVector lightening = channel.neg().add(255).mul(3);
+        return channel.add(lightening.mul(205).lanewise(VectorOperators.LSHR, 10));
+    }
+}
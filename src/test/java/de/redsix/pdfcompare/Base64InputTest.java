@@ -0,0 +1,41 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+public class Base64InputTest {
+
+    @Test
+    public void decodesWithAndWithoutPadding() throws IOException {
+        for (int length = 0; length < 10; length++) {
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 37);
+            }
+            assertThat(Base64Input.decode(Base64.getEncoder().encodeToString(bytes)), is(bytes));
+            assertThat(Base64Input.decode(Base64.getEncoder().withoutPadding().encodeToString(bytes)), is(bytes));
+        }
+    }
+
+    @Test
+    public void decodesByteBuffersWithoutMovingThePosition() {
+        final ByteBuffer base64 = ByteBuffer.wrap(Base64.getEncoder().encode(new byte[] {1, 2, 3, 4}));
+        final ByteBuffer decoded = Base64Input.decode(base64);
+        assertThat(decoded.remaining(), is(4));
+        assertThat(decoded.get(3), is((byte) 4));
+        assertThat(base64.position(), is(0));
+    }
+
+    @Test
+    public void rejectsInvalidCharacters() {
+        assertThrows(IOException.class, () -> Base64Input.decode("AQIDŁ"));
+        assertThrows(IOException.class, () -> Base64Input.decode("AQ\nID"));
+    }
+}
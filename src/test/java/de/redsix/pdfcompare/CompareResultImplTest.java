@@ -2,6 +2,7 @@ package de.redsix.pdfcompare;
 
 import static org.hamcrest.collection.IsMapContaining.hasEntry;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 
 import de.redsix.pdfcompare.env.SimpleEnvironment;
@@ -38,6 +39,18 @@ class CompareResultImplTest {
         assertThat(compareResult.diffImages.size(), is(1));
     }
 
+    @Test
+    public void verdictOnlyPagesStoreNoImages() {
+        CompareResultImpl compareResult = new CompareResultImpl();
+        compareResult.setEnvironment(new SimpleEnvironment().setVerdictOnly(true));
+        compareResult.addPage(new PageDiffCalculator(0, 0), 1);
+        compareResult.addPage(new PageDiffCalculator(new PageArea(2)), 2);
+        assertThat(compareResult.hasImages(), is(false));
+        assertThat(compareResult.isEqual(), is(false));
+        assertThat(compareResult.getNumberOfPages(), is(2));
+        assertThat(compareResult.getPagesWithDifferences(), contains(2));
+    }
+
     @Test
     public void mapsDiffPercentagesCorrectly() {
         CompareResultImpl compareResult = new CompareResultImpl();
@@ -0,0 +1,128 @@
+package de.redsix.pdfcompare;
+
+import static de.redsix.pdfcompare.DiffImage.MARKER_RGB;
+import static de.redsix.pdfcompare.PdfComparator.MARKER_WIDTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import de.redsix.pdfcompare.env.Environment;
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Compares the diff images of the test documents with a straightforward implementation of the diff,
+ * that does all color calculations through {@link Color} objects, to make sure that the optimized
+ * color arithmetic gives pixel identical results.
+ */
+public class DiffImageReferenceTest extends FileReading {
+
+    private final Environment environment = new SimpleEnvironment()
+            .setExpectedColor(new Color(20, 160, 90))
+            .setActualColor(new Color(240, 30, 10));
+    private final Exclusions exclusions = new Exclusions(environment)
+            .add(new PageArea(1, 230, 350, 330, 420))
+            .add(new PageArea(2, 1750, 240, 1850, 300))
+            .add(new PageArea(0, 0, 600, 40));
+
+    @Test
+    public void diffImagesArePixelIdenticalToColorBasedImplementation() throws IOException {
+        assertPixelIdentical("expected.pdf", "actual.pdf", 0);
+        assertPixelIdentical("expected.pdf", "actual.pdf", 1);
+        assertPixelIdentical("expected.pdf", "short.pdf", 0);
+    }
+
+    private void assertPixelIdentical(final String expectedFile, final String actualFile, final int page) throws IOException {
+        final ImageWithDimension expected = Utilities.renderPage(p(expectedFile), page, environment);
+        final ImageWithDimension actual = Utilities.renderPage(p(actualFile), page, environment);
+        final ResultCollector resultCollector = mock(ResultCollector.class);
+        new DiffImage(expected, actual, page, environment, exclusions, resultCollector).diffImages();
+        final ArgumentCaptor<ImageWithDimension> captor = ArgumentCaptor.forClass(ImageWithDimension.class);
+        verify(resultCollector).addPage(any(), anyInt(), eq(expected), eq(actual), captor.capture());
+        final BufferedImage result = captor.getValue().bufferedImage;
+
+        final int[] reference = referenceDiff(expected.bufferedImage, actual.bufferedImage, exclusions.forPage(page + 1));
+        final int width = result.getWidth();
+        for (int y = 0; y < result.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                final int expectedRgb = reference[x + y * width];
+                final int actualRgb = result.getRaster().getDataBuffer().getElem(x + y * width);
+                if (expectedRgb != actualRgb) {
+                    assertEquals(Integer.toHexString(expectedRgb), Integer.toHexString(actualRgb),
+                            "Pixel differs on page " + (page + 1) + " at x: " + x + ", y: " + y);
+                }
+            }
+        }
+    }
+
+    private int[] referenceDiff(final BufferedImage expectedImage, final BufferedImage actualImage, final PageExclusions pageExclusions) {
+        final int width = Math.max(expectedImage.getWidth(), actualImage.getWidth());
+        final int height = Math.max(expectedImage.getHeight(), actualImage.getHeight());
+        final int[] result = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int expectedElement = getElement(expectedImage, x, y);
+                final int actualElement = getElement(actualImage, x, y);
+                int element = expectedElement == actualElement ? fadeElement(expectedElement) : diffElement(expectedElement, actualElement);
+                if (pageExclusions.contains(x, y)) {
+                    element = fadeExclusion(element);
+                } else if (expectedElement != actualElement) {
+                    for (int i = 0; i < MARKER_WIDTH; i++) {
+                        result[x + i * width] = MARKER_RGB;
+                        result[i + y * width] = MARKER_RGB;
+                    }
+                }
+                result[x + y * width] = element;
+            }
+        }
+        return result;
+    }
+
+    private static int getElement(final BufferedImage image, final int x, final int y) {
+        if (x < image.getWidth() && y < image.getHeight()) {
+            return image.getRaster().getDataBuffer().getElem(x + y * image.getWidth());
+        }
+        return 0;
+    }
+
+    private int diffElement(final int expectedElement, final int actualElement) {
+        final int expectedIntensity = intensity(new Color(expectedElement));
+        final int actualIntensity = intensity(new Color(actualElement));
+        if (expectedIntensity > actualIntensity) {
+            final Color color = environment.getActualColor();
+            return new Color(Math.min(color.getRed(), Math.max(50, expectedIntensity)), color.getGreen(), color.getBlue()).getRGB();
+        } else {
+            final Color color = environment.getExpectedColor();
+            return new Color(color.getRed(), Math.min(color.getGreen(), Math.max(50, actualIntensity)), color.getBlue()).getRGB();
+        }
+    }
+
+    private static int intensity(final Color color) {
+        return Math.min(255, (color.getRed() + color.getGreen() + color.getRed()) / 3);
+    }
+
+    /*package*/ static int fadeElement(final int element) {
+        final Color color = new Color(element);
+        return new Color(fade(color.getRed()), fade(color.getGreen()), fade(color.getBlue())).getRGB();
+    }
+
+    /*package*/ static int fadeExclusion(final int element) {
+        final Color color = new Color(element);
+        if (color.getRed() > 245 && color.getGreen() > 245 && color.getBlue() > 245) {
+            return ImageTools.EXCLUDED_BACKGROUND_RGB;
+        }
+        return fadeElement(element);
+    }
+
+    private static int fade(final int i) {
+        return i + ((255 - i) * 3 / 5);
+    }
+}
@@ -7,7 +7,9 @@ import static de.redsix.pdfcompare.ImageTools.blankImage;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import de.redsix.pdfcompare.env.DefaultEnvironment;
@@ -22,6 +24,7 @@ import org.mockito.MockitoAnnotations;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
 
 public class DiffImageTest {
 
@@ -122,6 +125,141 @@ public class DiffImageTest {
         assertMarker(resultImage, 31, 27);
     }
 
+    @Test
+    public void differentlySizedImagesAreComparedOnTheCombinedArea() {
+        final ImageWithDimension smallerActual = new ImageWithDimension(
+                blankImage(new BufferedImage(30, 50, BufferedImage.TYPE_INT_RGB)), 1.0f, 1.0f);
+        final DiffImage diffImage = new DiffImage(expectedImage, smallerActual, 1, DefaultEnvironment.create(), exclusions, resultMock);
+        diffImage.diffImages();
+        verify(resultMock).addPage(pageDiffCalculatorCaptor.capture(), eq(1), eq(expectedImage), eq(smallerActual), captor.capture());
+        pageDiffCalculator = pageDiffCalculatorCaptor.getValue();
+        resultImage = captor.getValue().bufferedImage;
+
+        assertThat(resultImage.getWidth(), is(40));
+        assertThat(resultImage.getHeight(), is(50));
+        assertThat(pageDiffCalculator.differencesFound(), is(true));
+        assertThat(pageDiffCalculator.getDiffArea().getX1(), is(0));
+        assertThat(pageDiffCalculator.getDiffArea().getY1(), is(0));
+        assertThat(pageDiffCalculator.getDiffArea().getX2(), is(39));
+        assertThat(pageDiffCalculator.getDiffArea().getY2(), is(49));
+        assertThat(resultImage.getRGB(25, 25), is(Color.WHITE.getRGB()));
+        assertThat(resultImage.getRGB(32, 30), is(color(210, 0, 0)));
+        assertThat(resultImage.getRGB(25, 45), is(color(0, 180, 0)));
+    }
+
+    @Test
+    public void markersAreOnlyDrawnBeforeTheDifference() {
+        actual.setRGB(5, 3, Color.BLACK.getRGB());
+        final BufferedImage resultImage = createAndAssertDiffImage();
+        assertThat(resultImage.getRGB(5, 3), is(color(210, 0, 0)));
+        for (int i = 0; i < 3; i++) {
+            assertThat(resultImage.getRGB(5, i), is(MARKER_RGB));
+        }
+        for (int i = 4; i < 20; i++) {
+            assertThat(resultImage.getRGB(5, i), is(Color.WHITE.getRGB()));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThat(resultImage.getRGB(i, 3), is(MARKER_RGB));
+        }
+        for (int i = 6; i < 20; i++) {
+            assertThat(resultImage.getRGB(i, 3), is(Color.WHITE.getRGB()));
+        }
+    }
+
+    @Test
+    public void verdictOnlyCreatesNoResultImage() {
+        actual.setRGB(26, 26, Color.BLACK.getRGB());
+        actual.setRGB(36, 36, Color.BLACK.getRGB());
+        final DiffImage diffImage = new DiffImage(expectedImage, actualImage, 1,
+                new SimpleEnvironment().setVerdictOnly(true), exclusions, resultMock);
+        diffImage.diffImages();
+        verify(resultMock).addPage(pageDiffCalculatorCaptor.capture(), eq(1));
+        pageDiffCalculator = pageDiffCalculatorCaptor.getValue();
+        assertThat(diffImage.getImage(), nullValue());
+        assertThat(pageDiffCalculator.differencesFound(), is(true));
+        assertThat(pageDiffCalculator.differencesFoundInExclusion(), is(true));
+        assertThat(pageDiffCalculator.getDiffArea().getX1(), is(26));
+        assertThat(pageDiffCalculator.getDiffArea().getY2(), is(26));
+    }
+
+    @Test
+    public void stripedDiffGivesTheSameResultAsASingleStrip() {
+        actual.setRGB(5, 3, Color.BLACK.getRGB());
+        actual.setRGB(12, 17, Color.BLACK.getRGB());
+        actual.setRGB(36, 36, Color.BLACK.getRGB());
+        expected.setRGB(30, 25, Color.BLACK.getRGB());
+        final DiffImage singleStrip = new DiffImage(expectedImage, actualImage, 1, DefaultEnvironment.create(), exclusions, resultMock);
+        singleStrip.diffImages(1);
+        final ForkJoinPool stripPool = new ForkJoinPool(4);
+        final DiffImage sevenStrips = new DiffImage(expectedImage, actualImage, 1, DefaultEnvironment.create(), exclusions, resultMock)
+                .withStripPool(stripPool);
+        try {
+            sevenStrips.diffImages(7);
+        } finally {
+            stripPool.shutdown();
+        }
+        verify(resultMock, times(2)).addPage(pageDiffCalculatorCaptor.capture(), eq(1), eq(expectedImage), eq(actualImage), captor.capture());
+
+        final PageDiffCalculator single = pageDiffCalculatorCaptor.getAllValues().get(0);
+        final PageDiffCalculator striped = pageDiffCalculatorCaptor.getAllValues().get(1);
+        assertThat(striped, is(single));
+        assertThat(striped.getDiffArea(), is(single.getDiffArea()));
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 40; x++) {
+                assertThat(sevenStrips.getImage().getRGB(x, y), is(singleStrip.getImage().getRGB(x, y)));
+            }
+        }
+    }
+
+    @Test
+    public void grayAndBinaryImagesGiveTheSameResultAsRgbImages() {
+        actual.setRGB(5, 3, Color.BLACK.getRGB());
+        actual.setRGB(39, 17, Color.BLACK.getRGB());
+        expected.setRGB(30, 25, Color.BLACK.getRGB());
+        expected.setRGB(12, 30, Color.BLACK.getRGB());
+        actual.setRGB(12, 30, Color.BLACK.getRGB());
+        final DiffImage rgb = new DiffImage(expectedImage, actualImage, 1, DefaultEnvironment.create(), exclusions, resultMock);
+        rgb.diffImages(3);
+        final DiffImage gray = diffConverted(BufferedImage.TYPE_BYTE_GRAY);
+        final DiffImage binary = diffConverted(BufferedImage.TYPE_BYTE_BINARY);
+        verify(resultMock, times(3)).addPage(pageDiffCalculatorCaptor.capture(), eq(1), any(), any(), captor.capture());
+
+        final PageDiffCalculator rgbCalculator = pageDiffCalculatorCaptor.getAllValues().get(0);
+        for (PageDiffCalculator calculator : pageDiffCalculatorCaptor.getAllValues()) {
+            assertThat(calculator, is(rgbCalculator));
+            assertThat(calculator.getDiffArea(), is(rgbCalculator.getDiffArea()));
+        }
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 40; x++) {
+                assertThat(gray.getImage().getRGB(x, y), is(rgb.getImage().getRGB(x, y)));
+                assertThat(binary.getImage().getRGB(x, y), is(rgb.getImage().getRGB(x, y)));
+            }
+        }
+    }
+
+    private DiffImage diffConverted(final int imageType) {
+        final DiffImage diffImage = new DiffImage(new ImageWithDimension(convert(expected, imageType), 1.0f, 1.0f),
+                new ImageWithDimension(convert(actual, imageType), 1.0f, 1.0f), 1, DefaultEnvironment.create(), exclusions, resultMock);
+        diffImage.diffImages(3);
+        return diffImage;
+    }
+
+    private static BufferedImage convert(final BufferedImage image, final int imageType) {
+        final BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+        final Graphics2D graphics = converted.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return converted;
+    }
+
+    @Test
+    public void numberOfStripsDependsOnPageSizeAndParallelism() {
+        assertThat(DiffImage.getNumberOfStrips(2480, 3508, 8), is(8));
+        assertThat(DiffImage.getNumberOfStrips(2480, 3508, 64), is(16));
+        assertThat(DiffImage.getNumberOfStrips(100, 100, 8), is(1));
+        assertThat(DiffImage.getNumberOfStrips(2480, 3508, 1), is(1));
+    }
+
     private BufferedImage createAndAssertDiffImage() {
         return createAndAssertDiffImage(DefaultEnvironment.create());
     }
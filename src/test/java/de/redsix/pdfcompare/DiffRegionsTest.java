@@ -0,0 +1,85 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class DiffRegionsTest extends FileReading {
+
+    @Test
+    public void equalImagesHaveNoRegions() {
+        final int[] pixels = new int[100 * 100];
+        assertThat(DiffRegions.find(pixels, pixels.clone(), 100, 100, 6, 600, 600), is(empty()));
+    }
+
+    @Test
+    public void aDifferenceBecomesARegionAroundItsTileAtTheConfiguredDPI() {
+        final int[] expected = new int[100 * 100];
+        final int[] actual = expected.clone();
+        actual[40 * 100 + 20] = 1;
+        final List<Rectangle> regions = DiffRegions.find(expected, actual, 100, 100, 6, 600, 600);
+        // the tile from 16 to 32 enlarged by a coarse pixel and a margin of 2 pixels
+        assertThat(regions, contains(new Rectangle(15 * 6 - 2, 31 * 6 - 2, 18 * 6 + 4, 18 * 6 + 4)));
+    }
+
+    @Test
+    public void neighbouringTilesAreMerged() {
+        final int[] expected = new int[100 * 100];
+        final int[] actual = expected.clone();
+        for (int y = 0; y < 40; y++) {
+            actual[y * 100 + 20] = 1;
+        }
+        final List<Rectangle> regions = DiffRegions.find(expected, actual, 100, 100, 1, 100, 100);
+        assertThat(regions, contains(new Rectangle(13, 0, 22, 51)));
+    }
+
+    @Test
+    public void largeDifferencesRenderTheWholePage() {
+        final int[] expected = new int[100 * 100];
+        final int[] actual = expected.clone();
+        Arrays.fill(actual, 1);
+        assertThat(DiffRegions.find(expected, actual, 100, 100, 6, 600, 600), is(nullValue()));
+    }
+
+    @Test
+    public void renderedRegionsHaveThePixelsOfTheWholePage() throws IOException {
+        final SimpleEnvironment environment = new SimpleEnvironment().setDPI(100);
+        try (PDDocument document = Loader.loadPDF(f("expected.pdf"))) {
+            final PDFRenderer renderer = new PDFRenderer(document);
+            final BufferedImage page = PdfComparator.renderPageAsImage(document, renderer, 0, environment).bufferedImage;
+            final List<Rectangle> regions = Arrays.asList(new Rectangle(10, 20, 300, 200), new Rectangle(101, 333, 250, 400));
+            final BufferedImage rendered = PdfComparator.renderPageAsImage(document, renderer, 0, environment, new RasterPool(0), regions)
+                    .bufferedImage;
+            int differences = 0;
+            int nonWhite = 0;
+            for (int y = 0; y < page.getHeight(); y++) {
+                for (int x = 0; x < page.getWidth(); x++) {
+                    final boolean inRegion = regions.get(0).contains(x, y) || regions.get(1).contains(x, y);
+                    final int expected = inRegion ? page.getRGB(x, y) : 0xFFFFFFFF;
+                    if (rendered.getRGB(x, y) != expected) {
+                        differences++;
+                    }
+                    if (inRegion && expected != 0xFFFFFFFF) {
+                        nonWhite++;
+                    }
+                }
+            }
+            assertThat(differences, is(0));
+            assertThat(nonWhite > 0, is(true));
+        }
+    }
+}
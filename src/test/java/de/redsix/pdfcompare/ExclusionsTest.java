@@ -140,4 +140,47 @@ public class ExclusionsTest extends FileReading {
         assertThat(exclusions.forPage(3).contains(125, 1), is(true));
         assertThat(exclusions.forPage(3).contains(126, 1), is(false));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void spansMergeOverlappingExclusionsPerLine() {
+        exclusions.add(new PageArea(2, 10, 5, 20, 15))
+                .add(new PageArea(15, 10, 30, 12))
+                .add(new PageArea(40, 0, 200, 3));
+        final ExclusionSpans spans = exclusions.spansForPage(2, 100, 50);
+        assertThat(spans.forLine(0), is(new int[] {40, 100}));
+        assertThat(spans.forLine(4), is(new int[0]));
+        assertThat(spans.forLine(5), is(new int[] {10, 21}));
+        assertThat(spans.forLine(11), is(new int[] {10, 31}));
+        assertThat(spans.forLine(15), is(new int[] {10, 21}));
+        assertThat(spans.forLine(16), is(new int[0]));
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 100; x++) {
+                assertThat(spans.contains(x, y), is(exclusions.forPage(2).contains(x, y)));
+            }
+        }
+    }
+
+    @Test
+    public void spansOfWholePageExclusionCoverEveryLine() {
+        exclusions.add(new PageArea(3)).add(new PageArea(1, 1, 2, 2));
+        final ExclusionSpans spans = exclusions.spansForPage(3, 100, 50);
+        assertThat(spans.forLine(0), is(new int[] {0, 100}));
+        assertThat(spans.forLine(49), is(new int[] {0, 100}));
+    }
+
+    @Test
+    public void spansAreSharedByPagesWithoutOwnExclusions() {
+        exclusions.add(new PageArea(1, 1, 2, 2)).add(new PageArea(3, 5, 5, 6, 6));
+        assertThat(exclusions.spansForPage(1, 100, 50) == exclusions.spansForPage(2, 100, 50), is(true));
+        assertThat(exclusions.spansForPage(1, 100, 50) == exclusions.spansForPage(3, 100, 50), is(false));
+        exclusions.add(new PageArea(7, 7, 8, 8));
+        assertThat(exclusions.spansForPage(1, 100, 50).contains(7, 7), is(true));
+    }
+
+    @Test
+    public void wholePageExclusionIsDetected() {
+        exclusions.add(new PageArea(3)).add(new PageArea(1, 1, 2, 2));
+        assertThat(exclusions.forPage(3).excludesWholePage(), is(true));
+        assertThat(exclusions.forPage(2).excludesWholePage(), is(false));
+    }
+}
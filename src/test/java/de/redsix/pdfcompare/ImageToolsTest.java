@@ -33,4 +33,17 @@ public class ImageToolsTest {
         int actual = fadeExclusion(new Color(250, 250, 250).getRGB());
         assertThat(actual, is(EXCLUDED_BACKGROUND_RGB));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void fadingIsIdenticalToColorBasedFadingForAllColors() {
+        for (int rgb = 0; rgb <= 0xFFFFFF; rgb++) {
+            final int argb = rgb | (rgb & 0xFF) << 24;
+            if (fadeElement(argb) != DiffImageReferenceTest.fadeElement(argb)) {
+                assertThat(Integer.toHexString(fadeElement(argb)), is(Integer.toHexString(DiffImageReferenceTest.fadeElement(argb))));
+            }
+            if (fadeExclusion(argb) != DiffImageReferenceTest.fadeExclusion(argb)) {
+                assertThat(Integer.toHexString(fadeExclusion(argb)), is(Integer.toHexString(DiffImageReferenceTest.fadeExclusion(argb))));
+            }
+        }
+    }
+}
@@ -7,21 +7,53 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import de.redsix.junitextensions.TempDirectory;
 import de.redsix.junitextensions.TempDirectoryExtension;
+import de.redsix.pdfcompare.env.RenderImageType;
 import de.redsix.pdfcompare.env.SimpleEnvironment;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @ExtendWith(TempDirectoryExtension.class)
 public class IntegrationTest extends FileReading {
@@ -78,6 +110,326 @@ public class IntegrationTest extends FileReading {
         writeAndCompare(result);
     }
 
+    @Test
+    public void differingDocumentsAreNotEqualWhenRenderedGrayOrBinary() throws IOException {
+        for (RenderImageType imageType : new RenderImageType[] { RenderImageType.GRAY, RenderImageType.BINARY }) {
+            final CompareResultImpl result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                    .withEnvironment(new SimpleEnvironment().setRenderImageType(imageType))
+                    .compare();
+            assertThat(result.getPagesWithDifferences(), contains(1, 2));
+            assertThat(result.getNumberOfPages(), is(2));
+
+            final CompareResult equalResult = new PdfComparator<>(r("expectedSameAsActual.pdf"), r("actual.pdf"))
+                    .withEnvironment(new SimpleEnvironment().setRenderImageType(imageType))
+                    .compare();
+            assertThat(equalResult.isEqual(), is(true));
+        }
+    }
+
+    @Test
+    public void differingDocumentsAreNotEqualInVerdictOnlyMode() throws IOException {
+        final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withVerdictOnly()
+                .compare();
+        assertThat(result.isNotEqual(), is(true));
+        assertThat(result.getNumberOfPages(), is(2));
+        assertThat(result.getPagesWithDifferences(), contains(1, 2));
+        final PageArea diff1 = result.getDifferences().iterator().next();
+        assertThat(diff1.getX1(), is(237));
+        assertThat(diff1.getY1(), is(363));
+        assertThat(diff1.getX2(), is(421));
+        assertThat(diff1.getY2(), is(408));
+        writeAndCompare(result);
+    }
+
+    @Test
+    public void aShorterDocumentIsNotEqualInVerdictOnlyMode() throws IOException {
+        final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("short.pdf"))
+                .withEnvironment(new SimpleEnvironment().setVerdictOnly(true))
+                .compare();
+        assertThat(result.isNotEqual(), is(true));
+        assertThat(result.getPagesWithDifferences(), contains(2));
+    }
+
+    @Test
+    public void comparisonsCanShareAnEngine() throws Exception {
+        final PdfCompareEngine engine = new PdfCompareEngine(new SimpleEnvironment().setRenderThreads(2).setDiffThreads(1));
+        try {
+            final ExecutorService executor = Executors.newFixedThreadPool(3);
+            try {
+                final List<Future<CompareResult>> results = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    results.add(executor.submit(() -> new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withEngine(engine).compare()));
+                }
+                results.add(executor.submit(() -> new PdfComparator<>(r("expectedSameAsActual.pdf"), r("actual.pdf")).withEngine(engine).compare()));
+                for (int i = 0; i < 3; i++) {
+                    assertThat(results.get(i).get().getPagesWithDifferences(), contains(1, 2));
+                }
+                assertThat(results.get(3).get().isEqual(), is(true));
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            engine.close();
+        }
+        assertThat(engine.isClosed(), is(true));
+        assertThrows(IllegalStateException.class, () -> new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withEngine(engine).compare());
+    }
+
+    @Test
+    public void differingDocumentsAreNotEqualWithVirtualThreads() throws IOException {
+        final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withEnvironment(new SimpleEnvironment().setVirtualThreads(true))
+                .compare();
+        assertThat(result.getPagesWithDifferences(), contains(1, 2));
+    }
+
+    @Test
+    public void compareAsyncCompletesWithTheResult() throws Exception {
+        final CompletableFuture<CompareResultImpl> future = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).compareAsync();
+        assertThat(future.get().getPagesWithDifferences(), contains(1, 2));
+    }
+
+    @Test
+    public void compareAsyncCanBeCancelled() throws InterruptedException {
+        final CountDownLatch compareFinished = new CountDownLatch(1);
+        final CompareResultImpl compareResult = new CompareResultImpl() {
+
+            @Override
+            public void done() {
+                super.done();
+                compareFinished.countDown();
+            }
+        };
+        final CompletableFuture<CompareResultImpl> future = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"), compareResult)
+                .compareAsync();
+        assertThat(future.cancel(true), is(true));
+        assertThrows(CancellationException.class, future::join);
+        // the comparison closes the documents and ends right away, instead of waiting for the overall timeout
+        assertThat(compareFinished.await(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void compareAsyncCanBeCancelledWhileTheDocumentsAreLoaded() throws InterruptedException {
+        final CountDownLatch compareFinished = new CountDownLatch(1);
+        final CompareResultImpl compareResult = new CompareResultImpl() {
+
+            @Override
+            public void done() {
+                super.done();
+                compareFinished.countDown();
+            }
+        };
+        final CountDownLatch expectedRead = new CountDownLatch(1);
+        final CountDownLatch releaseExpected = new CountDownLatch(1);
+        final CountDownLatch releaseActual = new CountDownLatch(1);
+        final CountingPdfRendererFactory renderers = new CountingPdfRendererFactory();
+        try {
+            final CompletableFuture<CompareResultImpl> future = new PdfComparator<>(
+                    new BlockingInputStream(r("expected.pdf"), expectedRead, releaseExpected),
+                    new BlockingInputStream(r("actual.pdf"), new CountDownLatch(1), releaseActual), compareResult)
+                    .withEnvironment(new SimpleEnvironment().setSkipIdenticalPages(false))
+                    .withPdfRendererFactory(renderers)
+                    .compareAsync();
+            assertThat(expectedRead.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(future.cancel(true), is(true));
+            releaseExpected.countDown();
+            assertThrows(CancellationException.class, future::join);
+            // the actual document is still loading, but the comparison stops, when the expected document is loaded
+            assertThat(compareFinished.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(renderers.getRenderings(), is(0));
+        } finally {
+            releaseActual.countDown();
+        }
+    }
+
+    @Test
+    public void pagesExceedingThePageTimeoutAreErrors() {
+        final RenderingException exception = assertThrows(RenderingException.class,
+                () -> new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                        .withEnvironment(new SimpleEnvironment().setPageTimeout(0))
+                        .compare());
+        assertThat(exception.getSuppressed().length, is(2));
+    }
+
+    @Test
+    public void failFastStopsAtTheFirstDifference() throws IOException {
+        final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withEnvironment(new SimpleEnvironment().setParallelProcessing(false))
+                .withFailFast()
+                .compare();
+        assertThat(result.isNotEqual(), is(true));
+        assertThat(result.isComplete(), is(false));
+        assertThat(result.getPagesWithDifferences(), contains(1));
+    }
+
+    @Test
+    public void failFastResultDoesNotChangeAfterTheComparison() throws IOException {
+        final PdfCompareEngine engine = new PdfCompareEngine(new SimpleEnvironment().setRenderThreads(4).setDiffThreads(2));
+        final CompareResultImpl result;
+        final List<Integer> pagesWithDifferences;
+        final boolean complete;
+        try {
+            result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withEngine(engine).withFailFast().compare();
+            pagesWithDifferences = new ArrayList<>(result.getPagesWithDifferences());
+            complete = result.isComplete();
+        } finally {
+            // waits for all tasks, that were ever scheduled on the engine
+            engine.close();
+        }
+        assertThat(result.getPagesWithDifferences(), is(pagesWithDifferences));
+        assertThat(result.isComplete(), is(complete));
+        assertThat(complete, is(pagesWithDifferences.size() == 2));
+    }
+
+    @Test
+    public void failFastCompletesEqualDocuments() throws IOException {
+        final CompareResult result = new PdfComparator<>(r("expectedSameAsActual.pdf"), r("actual.pdf"))
+                .withEnvironment(new SimpleEnvironment().setFailFast(true))
+                .compare();
+        assertThat(result.isEqual(), is(true));
+        assertThat(result.isComplete(), is(true));
+    }
+
+    @Test
+    public void identicalPagesAreNotRendered() throws IOException {
+        final byte[] copy = savedCopy("expected.pdf");
+        final CountingPdfRendererFactory renderers = new CountingPdfRendererFactory();
+        final CompareResult result = new PdfComparator<>(r("expected.pdf"), new ByteArrayInputStream(copy))
+                .withVerdictOnly()
+                .withPdfRendererFactory(renderers)
+                .compare();
+        assertThat(result.isEqual(), is(true));
+        assertThat(renderers.getRenderings(), is(0));
+        final CompareResult rendered = new PdfComparator<>(r("expected.pdf"), new ByteArrayInputStream(copy))
+                .withEnvironment(new SimpleEnvironment().setSkipIdenticalPages(false))
+                .withVerdictOnly()
+                .withPdfRendererFactory(renderers)
+                .compare();
+        assertThat(rendered.isEqual(), is(true));
+        assertThat(renderers.getRenderings(), is(greaterThan(0)));
+    }
+
+    @Test
+    public void onlyPagesDifferingAtTheCoarseDPIAreComparedAtTheConfiguredDPI() throws IOException {
+        final SimpleEnvironment environment = new SimpleEnvironment().setCoarseDPI(50).setAddEqualPagesToResult(false);
+        final CompareResultImpl result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withEnvironment(environment)
+                .compare();
+        final CompareResultImpl fullResult = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withEnvironment(new SimpleEnvironment(environment).setCoarseDPI(0))
+                .compare();
+        assertThat(result.getPagesWithDifferences(), contains(1, 2));
+        assertThat(result.getDifferencesJson(), is(fullResult.getDifferencesJson()));
+        assertThat(result.getPagesResolvedAtFullResolution(), is(2));
+        assertThat(fullResult.getPagesResolvedAtFullResolution(), is(0));
+        final CompareResult verdict = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withEnvironment(environment)
+                .withVerdictOnly()
+                .compare();
+        assertThat(verdict.getDifferencesJson(), is(fullResult.getDifferencesJson()));
+    }
+
+    @Test
+    public void pagesEqualAtTheCoarseDPIAreNotComparedAtTheConfiguredDPI() throws IOException {
+        final byte[] copy = savedCopy("expected.pdf");
+        final SimpleEnvironment environment = new SimpleEnvironment().setCoarseDPI(50).setSkipIdenticalPages(false);
+        final CompareResultImpl result = new PdfComparator<>(r("expected.pdf"), new ByteArrayInputStream(copy))
+                .withEnvironment(environment)
+                .withVerdictOnly()
+                .compare();
+        assertThat(result.isEqual(), is(true));
+        assertThat(result.getPagesResolvedCoarsely(), is(greaterThan(0)));
+        assertThat(result.getPagesResolvedAtFullResolution(), is(0));
+        final CompareResultImpl verified = new PdfComparator<>(r("expected.pdf"), new ByteArrayInputStream(copy))
+                .withEnvironment(environment.setVerifyCoarselyEqualPages(true))
+                .withVerdictOnly()
+                .compare();
+        assertThat(verified.isEqual(), is(true));
+        assertThat(verified.getPagesResolvedCoarsely(), is(0));
+        assertThat(verified.getPagesResolvedAtFullResolution(), is(result.getPagesResolvedCoarsely()));
+    }
+
+    @Test
+    public void imagesKeptByTheResultAreNotReusedByDefault() throws IOException {
+        final byte[] expected = twoPages(10);
+        final byte[] actual = twoPages(20);
+        final Set<BufferedImage> pageImages = Collections.newSetFromMap(new IdentityHashMap<>());
+        final CompareResultImpl keepingResult = new CompareResultImpl() {
+            @Override
+            public synchronized void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+                    final ImageWithDimension expectedImage, final ImageWithDimension actualImage, final ImageWithDimension diffImage) {
+                pageImages.add(expectedImage.bufferedImage);
+                pageImages.add(actualImage.bufferedImage);
+                super.addPage(diffCalculator, pageIndex, expectedImage, actualImage, diffImage);
+            }
+        };
+        final SimpleEnvironment environment = new SimpleEnvironment().setParallelProcessing(false);
+        new PdfComparator<>(new ByteArrayInputStream(expected), new ByteArrayInputStream(actual), keepingResult)
+                .withEnvironment(environment)
+                .compare();
+        // every page was rendered into new images
+        assertThat(pageImages.size(), is(4));
+        final DiffImageCollectingResult reusingResult = new PdfComparator<>(new ByteArrayInputStream(expected),
+                new ByteArrayInputStream(actual), new DiffImageCollectingResult())
+                .withEnvironment(environment.setReusePageImages(true))
+                .compare();
+        assertThat(reusingResult.getDifferencesJson(), is(keepingResult.getDifferencesJson()));
+    }
+
+    @Test
+    public void pagesRenderedInBandsGiveTheSameResultAsCompletelyRenderedPages() throws IOException {
+        // a threshold of 1 megapixel renders A4 pages at 300 DPI in two bands
+        final SimpleEnvironment environment = new SimpleEnvironment().setTiledRenderingThreshold(1);
+        final CountingPdfRendererFactory bandedRenderings = new CountingPdfRendererFactory();
+        final DiffImageCollectingResult banded = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"), new DiffImageCollectingResult())
+                .withEnvironment(environment)
+                .withPdfRendererFactory(bandedRenderings)
+                .compare();
+        final CountingPdfRendererFactory completeRenderings = new CountingPdfRendererFactory();
+        final DiffImageCollectingResult complete = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"), new DiffImageCollectingResult())
+                .withPdfRendererFactory(completeRenderings)
+                .compare();
+        // banding is off by default, so both pages of both documents are rendered once
+        assertThat(completeRenderings.getRenderings(), is(4));
+        assertThat(bandedRenderings.getRenderings(), is(8));
+        final Map<Integer, BufferedImage> bandedDiffImages = banded.getCollectedDiffImages();
+        final Map<Integer, BufferedImage> completeDiffImages = complete.getCollectedDiffImages();
+        assertThat(banded.getPagesWithDifferences(), contains(1, 2));
+        assertThat(banded.getDifferencesJson(), is(complete.getDifferencesJson()));
+        assertThat(bandedDiffImages.keySet(), is(completeDiffImages.keySet()));
+        for (Map.Entry<Integer, BufferedImage> entry : completeDiffImages.entrySet()) {
+            assertThat(DiffImage.copyPixels(bandedDiffImages.get(entry.getKey())), is(DiffImage.copyPixels(entry.getValue())));
+        }
+        final CompareResult verdict = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withEnvironment(environment)
+                .withVerdictOnly()
+                .compare();
+        assertThat(verdict.getDifferencesJson(), is(complete.getDifferencesJson()));
+    }
+
+    @Test
+    public void pagesAreComparedOneByOneWithASmallMemoryBudget() throws IOException {
+        final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withEnvironment(new SimpleEnvironment().setPageMemoryBudget(1))
+                .compare();
+        assertThat(result.getPagesWithDifferences(), contains(1, 2));
+    }
+
+    @Test
+    public void renderedPagesOfTheExpectedDocumentAreCached() throws IOException {
+        final Path cacheDir = outDir.resolve("renderCache");
+        final SimpleEnvironment environment = new SimpleEnvironment().setRenderCacheDirectory(cacheDir);
+        final CompareResult firstResult = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withEnvironment(environment).compare();
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertThat(files.count(), is(2L));
+        }
+        final CompareResult secondResult = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withEnvironment(environment).compare();
+        assertThat(firstResult.getPagesWithDifferences(), contains(1, 2));
+        assertThat(secondResult.getPagesWithDifferences(), contains(1, 2));
+        assertThat(secondResult.getDifferencesJson(), is(firstResult.getDifferencesJson()));
+    }
+
     @Test
     public void differingDocumentsAreNotEqualUsingOutputStream() throws IOException {
         final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).compare();
@@ -141,6 +493,40 @@ public class IntegrationTest extends FileReading {
         writeAndCompare(result);
     }
 
+    @Test
+    public void fullyExcludedPagesReportOnlyRealDifferencesInTheExclusion() throws IOException {
+        final CompareResultImpl result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withIgnore(new PageArea(2)).compare();
+        assertThat(result.getPagesWithDifferences(), contains(1));
+        assertThat(result.hasDifferenceInExclusion(), is(true));
+        final byte[] copy = savedCopy("expected.pdf");
+        final CompareResultImpl identical = new PdfComparator<>(r("expected.pdf"), new ByteArrayInputStream(copy))
+                .withIgnore(new PageArea(2))
+                .compare();
+        assertThat(identical.isEqual(), is(true));
+        assertThat(identical.hasDifferenceInExclusion(), is(false));
+        final CompareResultImpl verdict = new PdfComparator<>(r("expected.pdf"), new ByteArrayInputStream(copy))
+                .withEnvironment(new SimpleEnvironment().setSkipIdenticalPages(false))
+                .withIgnore(new PageArea(2))
+                .withVerdictOnly()
+                .compare();
+        assertThat(verdict.isEqual(), is(true));
+        assertThat(verdict.hasDifferenceInExclusion(), is(false));
+    }
+
+    @Test
+    public void differingPagesExcludedAsAWholeAreNotRendered() throws IOException {
+        final CountingPdfRendererFactory renderers = new CountingPdfRendererFactory();
+        final CompareResultImpl result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+                .withIgnore(new PageArea(1))
+                .withIgnore(new PageArea(2))
+                .withVerdictOnly()
+                .withPdfRendererFactory(renderers)
+                .compare();
+        assertThat(result.isEqual(), is(true));
+        assertThat(result.getNumberOfPages(), is(2));
+        assertThat(renderers.getRenderings(), is(0));
+    }
+
     @Test
     public void exclusionsCanBeAddedViaAPI() throws IOException {
         final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
@@ -236,6 +622,75 @@ public class IntegrationTest extends FileReading {
         writeAndCompare(result);
     }
 
+    @Test
+    public void missingActualFileIsNotEqual() throws IOException {
+        final CompareResult result = new PdfComparator<>(f("expected.pdf"), new File("doesNotExist.pdf")).compare();
+        assertThat(result.hasOnlyExpected(), is(true));
+        assertThat(result.getNumberOfPages(), is(2));
+    }
+
+    @Test
+    public void missingFilesAreNotEqualInVerdictOnlyMode() throws IOException {
+        final CompareResult missingActual = new PdfComparator<>(f("expected.pdf"), new File("doesNotExist.pdf")).withVerdictOnly().compare();
+        assertThat(missingActual.hasOnlyExpected(), is(true));
+        final CompareResult missingExpected = new PdfComparator<>(new File("doesNotExist.pdf"), f("actual.pdf")).withVerdictOnly().compare();
+        assertThat(missingExpected.hasOnlyActual(), is(true));
+    }
+
+    @Test
+    public void identicalDocumentsAreNotRendered() throws IOException {
+        final int pageCount;
+        try (PDDocument document = Loader.loadPDF(f("actual.pdf"))) {
+            pageCount = document.getNumberOfPages();
+        }
+        final CountingPdfRendererFactory renderers = new CountingPdfRendererFactory();
+        final CompareResult fromFiles = new PdfComparator<>(p("expectedSameAsActual.pdf"), p("actual.pdf"))
+                .withVerdictOnly()
+                .withPdfRendererFactory(renderers)
+                .compare();
+        assertThat(fromFiles.isEqual(), is(true));
+        assertThat(fromFiles.getNumberOfPages(), is(pageCount));
+        final CompareResult fromStreams = new PdfComparator<>(r("expectedSameAsActual.pdf"), r("actual.pdf"))
+                .withEnvironment(new SimpleEnvironment().setAddEqualPagesToResult(false))
+                .withPdfRendererFactory(renderers)
+                .compare();
+        assertThat(fromStreams.isEqual(), is(true));
+        assertThat(fromStreams.getNumberOfPages(), is(0));
+        assertThat(renderers.getRenderings(), is(0));
+    }
+
+    @Test
+    public void identicalDocumentsWithAWrongPasswordAreNotEqual() throws IOException {
+        final byte[] encrypted;
+        try (PDDocument document = Loader.loadPDF(f("expected.pdf"))) {
+            document.protect(new StandardProtectionPolicy("owner", "user", new AccessPermission()));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            encrypted = out.toByteArray();
+        }
+        assertThrows(InvalidPasswordException.class, () -> new PdfComparator<>(new ByteArrayInputStream(encrypted), new ByteArrayInputStream(encrypted))
+                .withExpectedPassword("wrong").withActualPassword("wrong").withVerdictOnly().compare());
+        final CompareResult result = new PdfComparator<>(new ByteArrayInputStream(encrypted), new ByteArrayInputStream(encrypted))
+                .withExpectedPassword("user").withActualPassword("user").withVerdictOnly().compare();
+        assertThat(result.isEqual(), is(true));
+    }
+
+    @Test
+    public void identicalBrokenDocumentsAreNotEqual() {
+        final byte[] broken = "%PDF-1.4 no document".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> new PdfComparator<>(new ByteArrayInputStream(broken), new ByteArrayInputStream(broken))
+                .withVerdictOnly().compare());
+    }
+
+    @Test
+    public void filesAndStreamsGiveTheSameResult() throws IOException {
+        final CompareResult fromPaths = new PdfComparator<>(p("expected.pdf"), p("actual.pdf")).compare();
+        try (InputStream expected = Files.newInputStream(p("expected.pdf")); InputStream actual = Files.newInputStream(p("actual.pdf"))) {
+            final CompareResult fromStreams = new PdfComparator<>(expected, actual).compare();
+            assertThat(fromStreams.getDifferences(), is(fromPaths.getDifferences()));
+        }
+    }
+
     @Test
     public void identicalFilenamesAreEqual() throws IOException {
         final CompareResult result = new PdfComparator<>("whatever.pdf", "whatever.pdf").compare();
@@ -258,6 +713,19 @@ public class IntegrationTest extends FileReading {
         writeAndCompare(result);
     }
 
+    @Test
+    public void compareWithBase64CharSequenceAndByteBuffer() throws IOException {
+        final StringBuilder expectedBase64 = new StringBuilder(Base64.getEncoder().encodeToString(Files.readAllBytes(p("expected.pdf"))));
+        final ByteBuffer actualBase64 = ByteBuffer.wrap(Base64.getEncoder().encode(Files.readAllBytes(p("actual.pdf"))));
+        final CompareResult result = PdfComparator.base64(expectedBase64, StandardCharsets.US_ASCII.decode(actualBase64.duplicate()),
+                new CompareResultImpl()).compare();
+        assertThat(result.getPagesWithDifferences(), contains(1, 2));
+        final ByteBuffer expectedBytes = ByteBuffer.wrap(expectedBase64.toString().getBytes(StandardCharsets.US_ASCII));
+        final CompareResult resultFromBuffers = PdfComparator.base64(expectedBytes, actualBase64, new CompareResultImpl()).compare();
+        assertThat(resultFromBuffers.getDifferences(), is(result.getDifferences()));
+        assertThat(actualBase64.position(), is(0));
+    }
+
     @Test
     public void whenLessPixelsAreDifferentThanAllowedDiffInPercentResultIsEqual() throws IOException {
         final CompareResult result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
@@ -310,4 +778,122 @@ public class IntegrationTest extends FileReading {
         }
         assertTrue(compare.isEqual());
     }
+
+    /**
+     * Saves the document again, so the copy has other bytes, but the same pages.
+     */
+    private byte[] savedCopy(final String filename) throws IOException {
+        try (PDDocument document = Loader.loadPDF(f(filename))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Creates a document with two pages, that each show a square of the given size.
+     */
+    private static byte[] twoPages(final int size) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 2; i++) {
+                final PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream contents = new PDPageContentStream(document, page)) {
+                    contents.addRect(100, 100, size, size);
+                    contents.fill();
+                }
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Keeps the diff image of every page, that is added to the result.
+     */
+    private static class DiffImageCollectingResult extends CompareResultImpl {
+
+        private final Map<Integer, BufferedImage> collectedDiffImages = new ConcurrentHashMap<>();
+
+        @Override
+        public synchronized void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+                final ImageWithDimension expectedImage, final ImageWithDimension actualImage, final ImageWithDimension diffImage) {
+            collectedDiffImages.put(pageIndex, diffImage.bufferedImage);
+            super.addPage(diffCalculator, pageIndex, expectedImage, actualImage, diffImage);
+        }
+
+        private Map<Integer, BufferedImage> getCollectedDiffImages() {
+            return collectedDiffImages;
+        }
+    }
+
+    /**
+     * Creates PDFRenderers, that count how often they render a page, completely or in parts.
+     */
+    /**
+     * Blocks every read, until it is released.
+     */
+    private static class BlockingInputStream extends FilterInputStream {
+
+        private final CountDownLatch read;
+        private final CountDownLatch release;
+
+        private BlockingInputStream(final InputStream in, final CountDownLatch read, final CountDownLatch release) {
+            super(in);
+            this.read = read;
+            this.release = release;
+        }
+
+        @Override
+        public int read() throws IOException {
+            awaitRelease();
+            return super.read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            awaitRelease();
+            return super.read(b, off, len);
+        }
+
+        private void awaitRelease() throws InterruptedIOException {
+            read.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading");
+            }
+        }
+    }
+
+    private static class CountingPdfRendererFactory implements Function<PDDocument, PDFRenderer> {
+
+        private final AtomicInteger renderings = new AtomicInteger();
+
+        @Override
+        public PDFRenderer apply(final PDDocument document) {
+            return new PDFRenderer(document) {
+
+                @Override
+                public BufferedImage renderImage(final int pageIndex, final float scale, final ImageType imageType,
+                        final RenderDestination destination) throws IOException {
+                    renderings.incrementAndGet();
+                    return super.renderImage(pageIndex, scale, imageType, destination);
+                }
+
+                @Override
+                public void renderPageToGraphics(final int pageIndex, final Graphics2D graphics, final float scaleX, final float scaleY,
+                        final RenderDestination destination) throws IOException {
+                    renderings.incrementAndGet();
+                    super.renderPageToGraphics(pageIndex, graphics, scaleX, scaleY, destination);
+                }
+            };
+        }
+
+        private int getRenderings() {
+            return renderings.get();
+        }
+    }
 }
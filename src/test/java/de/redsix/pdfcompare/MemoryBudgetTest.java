@@ -0,0 +1,91 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.redsix.pdfcompare.env.RenderImageType;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+public class MemoryBudgetTest {
+
+    @Test
+    public void estimatesIntRastersFromThePageSize() {
+        final PDPage page = new PDPage(new PDRectangle(72, 144));
+        assertThat(MemoryBudget.estimateImage(page, 300), is(300L * 600 * 4));
+        assertThat(MemoryBudget.estimatePage(page, new PDPage(new PDRectangle(72, 72)), 300, RenderImageType.RGB, true),
+                is(300L * 600 * 4 + 300 * 300 * 4 + 300 * 600 * 4));
+        assertThat(MemoryBudget.estimatePage(page, page, 300, RenderImageType.RGB, false), is(300L * 600 * 4 * 2));
+    }
+
+    @Test
+    public void grayAndBinaryRastersNeedLessMemory() {
+        final PDPage page = new PDPage(new PDRectangle(72, 144));
+        assertThat(MemoryBudget.estimatePage(page, page, 300, RenderImageType.GRAY, true), is(300L * 600 * 2 + 300 * 600 * 4));
+        assertThat(MemoryBudget.estimatePage(page, page, 300, RenderImageType.BINARY, false), is(300L * 600 / 8 * 2));
+    }
+
+    @Test
+    public void aPageLargerThanTheBudgetIsAdmittedAlone() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(500);
+        assertThat(budget.getUsed(), is(500L));
+        budget.release(500);
+        assertThat(budget.getUsed(), is(0L));
+    }
+
+    @Test
+    public void acquireBlocksUntilEnoughMemoryIsReleased() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(60);
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final Thread thread = new Thread(() -> {
+            try {
+                budget.acquire(60);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS), is(false));
+        budget.release(60);
+        assertThat(acquired.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(budget.getUsed(), is(60L));
+    }
+
+    @Test
+    public void acquireReturnsWhenStopped() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(60);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final AtomicBoolean acquired = new AtomicBoolean(true);
+        final Thread thread = new Thread(() -> {
+            try {
+                acquired.set(budget.acquire(60, Long.MAX_VALUE, stopped::get));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        stopped.set(true);
+        budget.wakeUp();
+        thread.join(5000);
+        assertThat(thread.isAlive(), is(false));
+        assertThat(acquired.get(), is(false));
+        assertThat(budget.getUsed(), is(60L));
+    }
+
+    @Test
+    public void acquireTimesOut() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(60);
+        assertThat(budget.acquire(60, TimeUnit.MILLISECONDS.toNanos(10), () -> false), is(false));
+        assertThat(budget.getUsed(), is(60L));
+    }
+}
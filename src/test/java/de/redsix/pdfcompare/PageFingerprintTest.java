@@ -0,0 +1,135 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.graphics.optionalcontent.PDOptionalContentGroup;
+import org.apache.pdfbox.pdmodel.graphics.optionalcontent.PDOptionalContentProperties;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class PageFingerprintTest extends FileReading {
+
+    @Test
+    public void pagesOfASavedCopyHaveTheSameFingerprint() throws IOException {
+        try (PDDocument document = Loader.loadPDF(f("expected.pdf"));
+             PDDocument copy = Loader.loadPDF(saved(document))) {
+            final PageFingerprint fingerprint = new PageFingerprint(document);
+            final PageFingerprint copyFingerprint = new PageFingerprint(copy);
+            for (int i = 0; i < document.getNumberOfPages(); i++) {
+                assertThat(Arrays.equals(fingerprint.of(document.getPage(i)), copyFingerprint.of(copy.getPage(i))), is(true));
+            }
+        }
+    }
+
+    @Test
+    public void differingPagesHaveDifferentFingerprints() throws IOException {
+        try (PDDocument expected = Loader.loadPDF(f("expected.pdf"));
+             PDDocument actual = Loader.loadPDF(f("actual.pdf"))) {
+            final PageFingerprint expectedFingerprint = new PageFingerprint(expected);
+            final PageFingerprint actualFingerprint = new PageFingerprint(actual);
+            assertThat(Arrays.equals(expectedFingerprint.of(expected.getPage(0)), actualFingerprint.of(actual.getPage(0))), is(false));
+            assertThat(Arrays.equals(expectedFingerprint.of(expected.getPage(1)), actualFingerprint.of(actual.getPage(1))), is(false));
+        }
+    }
+
+    @Test
+    public void contentStreamsAreComparedDecoded() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            final PDPage compressed = page(document, "0 0 10 10 re f", true);
+            final PDPage uncompressed = page(document, "0 0 10 10 re f", false);
+            final PDPage other = page(document, "0 0 10 20 re f", false);
+            final PageFingerprint fingerprint = new PageFingerprint(document);
+            assertThat(Arrays.equals(fingerprint.of(compressed), fingerprint.of(uncompressed)), is(true));
+            assertThat(Arrays.equals(fingerprint.of(compressed), fingerprint.of(other)), is(false));
+        }
+    }
+
+    @Test
+    public void theRotationIsPartOfTheFingerprint() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            final PDPage page = page(document, "0 0 10 10 re f", false);
+            final PDPage rotated = page(document, "0 0 10 10 re f", false);
+            rotated.setRotation(90);
+            final PageFingerprint fingerprint = new PageFingerprint(document);
+            assertThat(Arrays.equals(fingerprint.of(page), fingerprint.of(rotated)), is(false));
+        }
+    }
+
+    @Test
+    public void theVisibilityOfOptionalContentIsPartOfTheFingerprint() throws IOException {
+        final byte[] saved;
+        try (PDDocument document = new PDDocument()) {
+            final PDOptionalContentGroup group = new PDOptionalContentGroup("layer");
+            final PDOptionalContentProperties properties = new PDOptionalContentProperties();
+            properties.addGroup(group);
+            document.getDocumentCatalog().setOCProperties(properties);
+            final PDPage page = page(document, "", false);
+            final COSName groupName = page.getResources().add(group);
+            write(page, "/OC /" + groupName.getName() + " BDC 0 0 10 10 re f EMC", false);
+            saved = saved(document);
+        }
+        try (PDDocument visible = Loader.loadPDF(saved);
+             PDDocument hidden = Loader.loadPDF(saved)) {
+            final PDOptionalContentProperties hiddenProperties = hidden.getDocumentCatalog().getOCProperties();
+            hiddenProperties.setGroupEnabled("layer", false);
+            final byte[] visibleFingerprint = new PageFingerprint(visible).of(visible.getPage(0));
+            assertThat(Arrays.equals(visibleFingerprint, new PageFingerprint(visible).of(visible.getPage(0))), is(true));
+            assertThat(Arrays.equals(visibleFingerprint, new PageFingerprint(hidden).of(hidden.getPage(0))), is(false));
+        }
+    }
+
+    @Test
+    public void theSettingsOfTheFormArePartOfTheFingerprint() throws IOException {
+        final byte[] saved;
+        try (PDDocument document = new PDDocument()) {
+            page(document, "0 0 10 10 re f", false);
+            document.getDocumentCatalog().setAcroForm(new PDAcroForm(document));
+            saved = saved(document);
+        }
+        try (PDDocument document = Loader.loadPDF(saved);
+             PDDocument needsAppearances = Loader.loadPDF(saved)) {
+            needsAppearances.getDocumentCatalog().getCOSObject().getCOSDictionary(COSName.ACRO_FORM)
+                    .setBoolean(COSName.NEED_APPEARANCES, true);
+            final byte[] fingerprint = new PageFingerprint(document).of(document.getPage(0));
+            assertThat(Arrays.equals(fingerprint, new PageFingerprint(document).of(document.getPage(0))), is(true));
+            assertThat(Arrays.equals(fingerprint, new PageFingerprint(needsAppearances).of(needsAppearances.getPage(0))), is(false));
+        }
+    }
+
+    private static PDPage page(final PDDocument document, final String content, final boolean compress) throws IOException {
+        final PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
+        try (PDPageContentStream ignored = new PDPageContentStream(document, page)) {
+            // creates the resources of the page
+        }
+        write(page, content, compress);
+        return page;
+    }
+
+    private static void write(final PDPage page, final String content, final boolean compress) throws IOException {
+        final COSStream contents = page.getCOSObject().getCOSStream(COSName.CONTENTS);
+        try (OutputStream out = compress ? contents.createOutputStream(COSName.FLATE_DECODE) : contents.createOutputStream()) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static byte[] saved(final PDDocument document) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * Compares the selected kernel, which is the vectorized one, when the Vector API is available, with the scalar kernel.
+ */
+public class PixelKernelTest {
+
+    private final PixelKernel scalar = new PixelKernel();
+    private final PixelKernel kernel = PixelKernel.INSTANCE;
+    private final Random random = new Random(42);
+
+    /**
+     * The build runs the tests once with and once without the Vector API and tells, which kernel has to be used.
+     */
+    @Test
+    public void theExpectedKernelIsUsed() {
+        final String expectedKernel = System.getProperty("expectedPixelKernel");
+        assumeTrue(expectedKernel != null, "The build does not tell, which kernel is expected");
+        assertThat(kernel.getClass().getSimpleName(), is(expectedKernel));
+    }
+
+    @Test
+    public void mismatchFindsTheFirstDifference() {
+        final int[] expected = new int[100];
+        final int[] actual = new int[100];
+        assertThat(kernel.mismatch(expected, 0, actual, 0, 100), is(100));
+        actual[37] = 1;
+        assertThat(kernel.mismatch(expected, 0, actual, 0, 100), is(37));
+        assertThat(kernel.mismatch(expected, 5, actual, 5, 95), is(32));
+        assertThat(kernel.mismatch(expected, 38, actual, 38, 62), is(62));
+        actual[99] = 1;
+        assertThat(kernel.mismatch(expected, 38, actual, 38, 62), is(61));
+        assertThat(kernel.mismatch(expected, 0, actual, 0, 0), is(0));
+    }
+
+    @Test
+    public void mismatchGivesTheSameResultAsTheScalarKernel() {
+        for (int run = 0; run < 1000; run++) {
+            final int length = random.nextInt(70);
+            final int[] expected = randomPixels(length + 10);
+            final int[] actual = expected.clone();
+            if (random.nextBoolean()) {
+                actual[random.nextInt(actual.length)] ^= 0x010101;
+            }
+            final int offset = random.nextInt(10);
+            assertThat(kernel.mismatch(expected, offset, actual, offset, length), is(scalar.mismatch(expected, offset, actual, offset, length)));
+        }
+    }
+
+    @Test
+    public void byteMismatchGivesTheSameResultAsTheScalarKernel() {
+        for (int run = 0; run < 1000; run++) {
+            final int length = random.nextInt(200);
+            final byte[] expected = new byte[length + 10];
+            random.nextBytes(expected);
+            final byte[] actual = expected.clone();
+            if (random.nextBoolean()) {
+                actual[random.nextInt(actual.length)] ^= 1;
+            }
+            final int offset = random.nextInt(10);
+            assertThat(kernel.mismatch(expected, offset, actual, offset, length), is(scalar.mismatch(expected, offset, actual, offset, length)));
+        }
+    }
+
+    @Test
+    public void fadeGivesTheSameResultAsFadeElement() {
+        for (int run = 0; run < 1000; run++) {
+            final int length = random.nextInt(70);
+            final int[] pixels = randomPixels(length + 10);
+            final int[] result = new int[length + 10];
+            final int offset = random.nextInt(10);
+            final int resultOffset = random.nextInt(10);
+            kernel.fade(pixels, offset, result, resultOffset, length);
+            for (int i = 0; i < length; i++) {
+                assertThat(result[i + resultOffset], is(ImageTools.fadeElement(pixels[i + offset])));
+            }
+        }
+    }
+
+    private int[] randomPixels(final int length) {
+        final int[] pixels = new int[length];
+        for (int i = 0; i < length; i++) {
+            // runs of the same color, like in rendered pages
+            pixels[i] = i > 0 && random.nextInt(4) > 0 ? pixels[i - 1] : random.nextInt();
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,89 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import de.redsix.pdfcompare.env.Environment;
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+
+public class RasterPoolTest extends FileReading {
+
+    @Test
+    public void releasedImagesAreReusedForTheSameSizeAndType() {
+        final RasterPool pool = new RasterPool(1);
+        final BufferedImage image = pool.borrow(10, 20, BufferedImage.TYPE_INT_RGB);
+        pool.release(image);
+        assertThat(pool.borrow(10, 21, BufferedImage.TYPE_INT_RGB), is(not(sameInstance(image))));
+        assertThat(pool.borrow(10, 20, BufferedImage.TYPE_INT_ARGB), is(not(sameInstance(image))));
+        assertThat(pool.borrow(10, 20, BufferedImage.TYPE_INT_RGB), is(sameInstance(image)));
+        assertThat(pool.getIdleCount(), is(0));
+    }
+
+    @Test
+    public void keepsAtMostMaxIdleImages() {
+        final RasterPool pool = new RasterPool(1);
+        pool.release(new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB));
+        pool.release(new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB));
+        assertThat(pool.getIdleCount(), is(1));
+    }
+
+    @Test
+    public void idleImagesAreChargedToTheMemoryBudget() {
+        final MemoryBudget budget = new MemoryBudget(10 * 20 * 4 * 2);
+        final RasterPool pool = new RasterPool(4, budget);
+        final BufferedImage image = pool.borrow(10, 20, BufferedImage.TYPE_INT_RGB);
+        pool.release(image);
+        pool.release(new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB));
+        pool.release(new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB));
+        assertThat(pool.getIdleCount(), is(2));
+        assertThat(budget.getIdle(), is(10L * 20 * 4 * 2));
+        pool.borrow(10, 20, BufferedImage.TYPE_INT_RGB);
+        assertThat(budget.getIdle(), is(10L * 20 * 4));
+        assertThat(budget.getUsed(), is(10L * 20 * 4));
+    }
+
+    @Test
+    public void idleImagesAreDroppedWhenAPageNeedsTheMemory() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(10 * 20 * 4 * 2);
+        final RasterPool pool = new RasterPool(4, budget);
+        pool.release(new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB));
+        pool.release(new BufferedImage(10, 20, BufferedImage.TYPE_BYTE_GRAY));
+        budget.acquire(10 * 20 * 4 * 2);
+        assertThat(pool.getIdleCount(), is(0));
+        assertThat(budget.getIdle(), is(0L));
+        assertThat(budget.getUsed(), is(10L * 20 * 4 * 2));
+    }
+
+    @Test
+    public void renderingIntoPooledImagesGivesTheSameImagesAsPdfBox() throws IOException {
+        final Environment environment = new SimpleEnvironment().setDPI(100);
+        final RasterPool pool = new RasterPool(2);
+        for (String file : new String[] {"expected.pdf", "actual.pdf"}) {
+            try (PDDocument document = Loader.loadPDF(f(file))) {
+                final PDFRenderer renderer = new PDFRenderer(document);
+                for (int page = 0; page < document.getNumberOfPages(); page++) {
+                    final ImageWithDimension expected = PdfComparator.renderPageAsImage(document, renderer, page, environment);
+                    final ImageWithDimension pooled = PdfComparator.renderPageAsImage(document, renderer, page, environment, pool);
+                    assertThat(pooled.width, is(expected.width));
+                    assertThat(pooled.height, is(expected.height));
+                    assertThat(pixels(pooled.bufferedImage), is(pixels(expected.bufferedImage)));
+                    pool.release(pooled.bufferedImage);
+                }
+            }
+        }
+    }
+
+    private static int[] pixels(final BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
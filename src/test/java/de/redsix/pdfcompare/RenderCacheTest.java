@@ -0,0 +1,128 @@
+package de.redsix.pdfcompare;
+
+import static de.redsix.pdfcompare.env.RenderImageType.BINARY;
+import static de.redsix.pdfcompare.env.RenderImageType.GRAY;
+import static de.redsix.pdfcompare.env.RenderImageType.RGB;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import de.redsix.junitextensions.TempDirectory;
+import de.redsix.junitextensions.TempDirectoryExtension;
+import de.redsix.pdfcompare.env.RenderImageType;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.stream.Stream;
+
+@ExtendWith(TempDirectoryExtension.class)
+public class RenderCacheTest {
+
+    @Test
+    public void cachedPagesAreReadBack(@TempDirectory Path dir) throws IOException {
+        final RenderCache cache = new RenderCache(dir, 1024 * 1024, false);
+        final BufferedImage image = randomImage(30, 20);
+        assertThat(cache.get("doc", 0, 300, RGB, new RasterPool(0)), is(nullValue()));
+        cache.put("doc", 0, 300, RGB, image);
+        final BufferedImage cached = cache.get("doc", 0, 300, RGB, new RasterPool(0));
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.getWidth(), is(30));
+        assertThat(cached.getHeight(), is(20));
+        assertThat(cached.getRGB(0, 0, 30, 20, null, 0, 30), is(image.getRGB(0, 0, 30, 20, null, 0, 30)));
+        assertThat(cache.get("doc", 1, 300, RGB, new RasterPool(0)), is(nullValue()));
+        assertThat(cache.get("doc", 0, 150, RGB, new RasterPool(0)), is(nullValue()));
+        assertThat(cache.get("otherDoc", 0, 300, RGB, new RasterPool(0)), is(nullValue()));
+    }
+
+    @Test
+    public void grayAndBinaryPagesAreCachedSeparately(@TempDirectory Path dir) throws IOException {
+        final RenderCache cache = new RenderCache(dir, 1024 * 1024, false);
+        for (RenderImageType imageType : new RenderImageType[] { GRAY, BINARY }) {
+            final BufferedImage image = new BufferedImage(30, 20, imageType.getBufferedImageType());
+            image.getGraphics().drawImage(randomImage(30, 20), 0, 0, null);
+            cache.put("doc", 0, 300, imageType, image);
+            final BufferedImage cached = cache.get("doc", 0, 300, imageType, new RasterPool(0));
+            assertThat(cached.getType(), is(imageType.getBufferedImageType()));
+            assertThat(cached.getRGB(0, 0, 30, 20, null, 0, 30), is(image.getRGB(0, 0, 30, 20, null, 0, 30)));
+        }
+        assertThat(cache.get("doc", 0, 300, RGB, new RasterPool(0)), is(nullValue()));
+        cache.put("doc", 0, 300, GRAY, randomImage(30, 20));
+        assertThat(cache.get("doc", 0, 300, GRAY, new RasterPool(0)).getType(), is(BufferedImage.TYPE_BYTE_GRAY));
+    }
+
+    @Test
+    public void leastRecentlyUsedPagesAreEvicted(@TempDirectory Path dir) throws IOException {
+        final RenderCache unbounded = new RenderCache(dir, Long.MAX_VALUE, false);
+        unbounded.put("doc", 0, 300, RGB, randomImage(30, 20));
+        unbounded.put("doc", 1, 300, RGB, randomImage(30, 20));
+        final long sizeOfTwoPages = unbounded.getSize();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> setLastModified(file, 0));
+        }
+        assertThat(unbounded.get("doc", 1, 300, RGB, new RasterPool(0)), is(notNullValue()));
+
+        final RenderCache cache = new RenderCache(dir, sizeOfTwoPages, false);
+        assertThat(cache.getSize(), is(sizeOfTwoPages));
+        cache.put("doc", 2, 300, RGB, randomImage(30, 20));
+        assertThat(cache.get("doc", 0, 300, RGB, new RasterPool(0)), is(nullValue()));
+        assertThat(cache.get("doc", 1, 300, RGB, new RasterPool(0)), is(notNullValue()));
+        assertThat(cache.get("doc", 2, 300, RGB, new RasterPool(0)), is(notNullValue()));
+    }
+
+    @Test
+    public void corruptPagesAreNotReturned(@TempDirectory Path dir) throws IOException {
+        final RenderCache cache = new RenderCache(dir, Long.MAX_VALUE, false);
+        cache.put("doc", 0, 300, RGB, randomImage(30, 20));
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> write(file, new byte[] {1, 2, 3}));
+        }
+        assertThat(cache.get("doc", 0, 300, RGB, new RasterPool(0)), is(nullValue()));
+    }
+
+    @Test
+    public void documentHashDependsOnTheContentAndKeepsThePosition() throws IOException {
+        try (RandomAccessReadBuffer document = new RandomAccessReadBuffer(new byte[] {1, 2, 3, 4})) {
+            document.seek(2);
+            final String hash = RenderCache.documentHash(document);
+            assertThat(document.getPosition(), is(2L));
+            assertThat(RenderCache.documentHash(new RandomAccessReadBuffer(new byte[] {1, 2, 3, 4})), is(hash));
+            assertThat(RenderCache.documentHash(new RandomAccessReadBuffer(new byte[] {1, 2, 3, 5})), is(not(hash)));
+        }
+    }
+
+    private static BufferedImage randomImage(final int width, final int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Random random = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static void setLastModified(final Path file, final long millis) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(millis));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void write(final Path file, final byte[] bytes) {
+        try {
+            Files.write(file, bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
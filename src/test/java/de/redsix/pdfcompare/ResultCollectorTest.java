@@ -0,0 +1,40 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class ResultCollectorTest {
+
+    @Test
+    public void verdictsAreAddedWithoutImagesByDefault() {
+        final RecordingCollector collector = new RecordingCollector();
+        final PageDiffCalculator diffCalculator = new PageDiffCalculator(0, 0);
+        collector.addPage(diffCalculator, 3);
+        assertThat(collector.diffCalculator, is(sameInstance(diffCalculator)));
+        assertThat(collector.pageIndex, is(3));
+        assertThat(collector.diffImage, is(nullValue()));
+    }
+
+    private static class RecordingCollector implements ResultCollector {
+
+        private PageDiffCalculator diffCalculator;
+        private int pageIndex = -1;
+        private ImageWithDimension diffImage;
+
+        @Override
+        public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex, final ImageWithDimension expectedImage,
+                final ImageWithDimension actualImage, final ImageWithDimension diffImage) {
+            this.diffCalculator = diffCalculator;
+            this.pageIndex = pageIndex;
+            this.diffImage = diffImage;
+        }
+
+        @Override
+        public void noPagesFound() {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+public class SemaphoreExecutorServiceTest {
+
+    @Test
+    public void limitsTheNumberOfConcurrentTasks() throws ExecutionException, InterruptedException {
+        final SemaphoreExecutorService executor = new SemaphoreExecutorService(Executors.newCachedThreadPool(), 2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int task = i;
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return task;
+            }));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertThat(futures.get(i).get(), is(i));
+        }
+        assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void runsATaskInterruptedWhileWaitingForAPermit() throws InterruptedException {
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        final SemaphoreExecutorService executor = new SemaphoreExecutorService(Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r);
+            threads.add(thread);
+            return thread;
+        }), 1);
+        final CountDownLatch holdsPermit = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        executor.execute(() -> {
+            holdsPermit.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(holdsPermit.await(5, TimeUnit.SECONDS), is(true));
+        executor.execute(() -> {
+            interrupted.set(Thread.currentThread().isInterrupted());
+            ran.countDown();
+        });
+        while (threads.size() < 2 || threads.get(1).getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        threads.get(1).interrupt();
+        assertThat(ran.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(interrupted.get(), is(true));
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void virtualThreadsLimitTheNumberOfConcurrentTasks() throws ExecutionException, InterruptedException {
+        Assumptions.assumeTrue(VirtualThreads.isAvailable(), "Virtual threads need Java 21 or later");
+        final ExecutorService executor = VirtualThreads.boundedExecutor("Test", 2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return Thread.currentThread().getName();
+            }));
+        }
+        for (Future<String> future : futures) {
+            assertThat(future.get().startsWith("Test-virtual-"), is(true));
+        }
+        assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    }
+}
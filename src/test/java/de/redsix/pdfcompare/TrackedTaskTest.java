@@ -0,0 +1,60 @@
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+
+public class TrackedTaskTest {
+
+    private final Phaser phaser = new Phaser();
+
+    @Test
+    public void taskIsRegisteredUntilItRan() {
+        final TrackedTask<String> task = new TrackedTask<>(() -> "done", phaser);
+        assertThat(phaser.getRegisteredParties(), is(1));
+        task.run();
+        assertThat(phaser.getRegisteredParties(), is(0));
+    }
+
+    @Test
+    public void taskCancelledBeforeItRunsIsDeregistered() {
+        final TrackedTask<String> task = new TrackedTask<>(() -> "done", phaser);
+        new TrackedTask<>(() -> "other", phaser);
+        task.cancel(true);
+        assertThat(phaser.getRegisteredParties(), is(1));
+        task.run();
+        assertThat(phaser.getRegisteredParties(), is(1));
+    }
+
+    @Test
+    public void runningTaskStaysRegisteredAfterItIsCancelled() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TrackedTask<String> task = new TrackedTask<>(() -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return "done";
+        }, phaser);
+        new TrackedTask<>(() -> "other", phaser);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(task);
+            assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+            task.cancel(false);
+            assertThat(task.isDone(), is(true));
+            assertThat(phaser.getRegisteredParties(), is(2));
+            release.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        assertThat(phaser.getRegisteredParties(), is(1));
+    }
+}
@@ -99,4 +99,14 @@ public class CliArgumentsTest {
                 "-x", "src/test/resources/de/redsix/pdfcompare/ignore.conf"})
                 .execute(), equalTo(0));
     }
+
+    @Test
+    public void comparesTwoDifferentFilesWithFailFastReturnsOne() {
+        final CliArguments cliArguments = new CliArguments(new String[]{
+                "src/test/resources/de/redsix/pdfcompare/expected.pdf",
+                "src/test/resources/de/redsix/pdfcompare/actual.pdf",
+                "--fail-fast"});
+        assertThat(cliArguments.isFailFast(), is(true));
+        assertThat(cliArguments.execute(), equalTo(1));
+    }
 }
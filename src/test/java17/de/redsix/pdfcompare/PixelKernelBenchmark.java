@@ -0,0 +1,98 @@
+package de.redsix.pdfcompare;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the vectorized {@link PixelKernel} on the lines of an A4 page rendered at 300 DPI.
+ * It is compiled with the tests in the vector-kernel profile. Run it with
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/test-classes:target/classes/META-INF/versions/17:target/classes:$(cat target/classpath.txt) \
+ *     org.openjdk.jmh.Main PixelKernelBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class PixelKernelBenchmark {
+
+    private static final int WIDTH = 2480;
+    private static final int LINES = 64;
+
+    @Param({ "scalar", "vector" })
+    public String kernelType;
+
+    private PixelKernel kernel;
+    private int[] expected;
+    private int[] actual;
+    private int[] faded;
+    private byte[] expectedBytes;
+    private byte[] actualBytes;
+
+    @Setup
+    public void setUp() {
+        if ("scalar".equals(kernelType)) {
+            kernel = new PixelKernel();
+        } else if (PixelKernel.INSTANCE.getClass() != PixelKernel.class) {
+            kernel = PixelKernel.INSTANCE;
+        } else {
+            throw new IllegalStateException("The Vector API is not available");
+        }
+        final Random random = new Random(42);
+        expected = new int[WIDTH * LINES];
+        for (int i = 0; i < expected.length; i++) {
+            // runs of the same color, like in rendered pages
+            expected[i] = i > 0 && random.nextInt(16) > 0 ? expected[i - 1] : random.nextInt();
+        }
+        // equal lines are scanned completely, like most lines of a page
+        actual = expected.clone();
+        faded = new int[expected.length];
+        expectedBytes = new byte[expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            expectedBytes[i] = (byte) expected[i];
+        }
+        actualBytes = expectedBytes.clone();
+    }
+
+    @Benchmark
+    public int mismatch() {
+        int equalPixels = 0;
+        for (int offset = 0; offset < expected.length; offset += WIDTH) {
+            equalPixels += kernel.mismatch(expected, offset, actual, offset, WIDTH);
+        }
+        return equalPixels;
+    }
+
+    @Benchmark
+    public int mismatchBytes() {
+        int equalBytes = 0;
+        for (int offset = 0; offset < expectedBytes.length; offset += WIDTH) {
+            equalBytes += kernel.mismatch(expectedBytes, offset, actualBytes, offset, WIDTH);
+        }
+        return equalBytes;
+    }
+
+    @Benchmark
+    public int[] fade() {
+        for (int offset = 0; offset < expected.length; offset += WIDTH) {
+            kernel.fade(expected, offset, faded, offset, WIDTH);
+        }
+        return faded;
+    }
+}